@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Point;
+import android.os.Looper;
+import android.view.View;
+import com.codename1.impl.android.AndroidImplementation;
+import com.codename1.impl.android.AndroidNativeUtil;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.MapView;
+import com.google.android.gms.maps.OnMapReadyCallback;
+import com.google.android.gms.maps.Projection;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Android implementation of {@link NativeMapBatch}. All the work, including the marker and icon lookups, happens
+ * on the UI thread and removals are queued behind pending additions through getMapAsync so batches apply in call
+ * order. The projections block on the UI thread once per batch. They first wait on the calling thread, up to
+ * {@link #MAP_TIMEOUT} milliseconds, for getMapAsync to return the map if no batch call cached it yet.
+ *
+ * The cn1lib owns the marker click listener of the map and ignores the batch markers, tapping one shows its info
+ * window. The info window adapter installed with the first batch reports that tap to {@link MapBatch}.
+ *
+ * Icons are looked up by content on the calling thread, registering the same image bytes again returns the
+ * icon already decoded. The icon registry is guarded by the class lock, it's the only state shared with the
+ * calling thread.
+ */
+public class NativeMapBatchImpl {
+    private static final HashMap<Long, Marker> markers = new HashMap<Long, Marker>();
+    private static final HashMap<Marker, Long> markerIds = new HashMap<Marker, Long>();
+    private static final WeakHashMap<GoogleMap, Boolean> tapHooks = new WeakHashMap<GoogleMap, Boolean>();
+    private static final HashMap<Long, Integer> markerIcons = new HashMap<Long, Integer>();
+    private static final HashMap<Integer, Icon> icons = new HashMap<Integer, Icon>();
+    private static final HashMap<Integer, ArrayList<Icon>> iconsByContent = new HashMap<Integer, ArrayList<Icon>>();
+    private static final int MAP_TIMEOUT = 2000;
+
+    // Guarded by itself, the projections read it from the calling thread.
+    private static final WeakHashMap<View, GoogleMap> googleMaps = new WeakHashMap<View, GoogleMap>();
+    private static int iconCounter;
+
+    /**
+     * A decoded icon, alive while it's registered or used by a marker.
+     */
+    private static class Icon {
+        final int id;
+        final byte[] data;
+        final int hash;
+        BitmapDescriptor descriptor;
+        int references = 1;
+
+        Icon(int id, byte[] data, int hash) {
+            this.id = id;
+            this.data = data;
+            this.hash = hash;
+        }
+    }
+
+    public int registerIcon(byte[] icon) {
+        final Icon i;
+        int hash = Arrays.hashCode(icon);
+        synchronized (NativeMapBatchImpl.class) {
+            ArrayList<Icon> sameHash = iconsByContent.get(hash);
+            if (sameHash == null) {
+                sameHash = new ArrayList<Icon>();
+                iconsByContent.put(hash, sameHash);
+            }
+            for (Icon existing : sameHash) {
+                if (Arrays.equals(existing.data, icon)) {
+                    existing.references++;
+                    return existing.id;
+                }
+            }
+            i = new Icon(++iconCounter, icon, hash);
+            sameHash.add(i);
+            icons.put(i.id, i);
+        }
+        AndroidNativeUtil.getActivity().runOnUiThread(new Runnable() {
+            public void run() {
+                Bitmap bmp = BitmapFactory.decodeByteArray(i.data, 0, i.data.length);
+                i.descriptor = BitmapDescriptorFactory.fromBitmap(bmp);
+            }
+        });
+        return i.id;
+    }
+
+    public void releaseIcon(final int icon) {
+        AndroidNativeUtil.getActivity().runOnUiThread(new Runnable() {
+            public void run() {
+                unreference(icon);
+            }
+        });
+    }
+
+    public void addMarkers(final View map, final long[] ids, final int icon, final double[] lat, final double[] lon,
+            final float[] anchorU, final float[] anchorV, final String texts) {
+        if (!(map instanceof MapView)) {
+            return;
+        }
+        AndroidNativeUtil.getActivity().runOnUiThread(new Runnable() {
+            public void run() {
+                // reference the icon in call order so a release queued after this batch can't drop it
+                final Icon i;
+                synchronized (NativeMapBatchImpl.class) {
+                    i = icons.get(icon);
+                    if (i != null) {
+                        i.references += ids.length;
+                    }
+                }
+                ((MapView) map).getMapAsync(new OnMapReadyCallback() {
+                    public void onMapReady(GoogleMap googleMap) {
+                        cacheMap(map, googleMap);
+                        addMarkers(googleMap, ids, icon, i, lat, lon, anchorU, anchorV, texts);
+                    }
+                });
+            }
+        });
+    }
+
+    private static void addMarkers(GoogleMap googleMap, long[] ids, int icon, Icon shared, double[] lat,
+            double[] lon, float[] anchorU, float[] anchorV, String texts) {
+        hookTaps(googleMap);
+        String[] titles = splitTexts(texts, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            MarkerOptions mo = new MarkerOptions();
+            mo.position(new LatLng(lat[i], lon[i]));
+            mo.anchor(anchorU[i], anchorV[i]);
+            if (shared != null) {
+                mo.icon(shared.descriptor);
+                markerIcons.put(ids[i], icon);
+            }
+            if (titles != null && titles[i].length() > 0) {
+                mo.title(titles[i]);
+            }
+            Marker m = googleMap.addMarker(mo);
+            markers.put(ids[i], m);
+            markerIds.put(m, ids[i]);
+        }
+    }
+
+    /**
+     * Reports taps on the batch markers, the info window of a marker is requested when it's tapped.
+     */
+    private static void hookTaps(GoogleMap googleMap) {
+        if (tapHooks.containsKey(googleMap)) {
+            return;
+        }
+        tapHooks.put(googleMap, Boolean.TRUE);
+        googleMap.setInfoWindowAdapter(new GoogleMap.InfoWindowAdapter() {
+            public View getInfoWindow(Marker marker) {
+                Long id = markerIds.get(marker);
+                if (id != null) {
+                    MapBatch.fireMarkerTap(id);
+                }
+                // the default window
+                return null;
+            }
+
+            public View getInfoContents(Marker marker) {
+                return null;
+            }
+        });
+    }
+
+    public void removeMarkers(final View map, final long[] ids) {
+        withMap(map, new OnMapReadyCallback() {
+            public void onMapReady(GoogleMap googleMap) {
+                cacheMap(map, googleMap);
+                for (int i = 0; i < ids.length; i++) {
+                    Marker m = markers.remove(ids[i]);
+                    if (m != null) {
+                        markerIds.remove(m);
+                        m.remove();
+                    }
+                    Integer icon = markerIcons.remove(ids[i]);
+                    if (icon != null) {
+                        unreference(icon);
+                    }
+                }
+            }
+        });
+    }
+
+    public int[] projectBatch(final View map, final double[] lat, final double[] lon) {
+        final int[][] result = new int[][] { new int[0] };
+        if (!(map instanceof MapView)) {
+            return result[0];
+        }
+        final GoogleMap googleMap = awaitMap((MapView) map);
+        if (googleMap == null) {
+            return result[0];
+        }
+        AndroidImplementation.runOnUiThreadAndBlock(new Runnable() {
+            public void run() {
+                Projection projection = googleMap.getProjection();
+                int[] xy = new int[lat.length * 2];
+                for (int i = 0; i < lat.length; i++) {
+                    Point p = projection.toScreenLocation(new LatLng(lat[i], lon[i]));
+                    xy[i * 2] = p.x;
+                    xy[i * 2 + 1] = p.y;
+                }
+                result[0] = xy;
+            }
+        });
+        return result[0];
+    }
+
+    public double[] unprojectBatch(final View map, final int[] xy) {
+        final double[][] result = new double[][] { new double[0] };
+        if (!(map instanceof MapView)) {
+            return result[0];
+        }
+        final GoogleMap googleMap = awaitMap((MapView) map);
+        if (googleMap == null) {
+            return result[0];
+        }
+        AndroidImplementation.runOnUiThreadAndBlock(new Runnable() {
+            public void run() {
+                Projection projection = googleMap.getProjection();
+                double[] coords = new double[xy.length];
+                for (int i = 0; i + 1 < xy.length; i += 2) {
+                    LatLng l = projection.fromScreenLocation(new Point(xy[i], xy[i + 1]));
+                    coords[i] = l.latitude;
+                    coords[i + 1] = l.longitude;
+                }
+                result[0] = coords;
+            }
+        });
+        return result[0];
+    }
+
+    private static void cacheMap(View map, GoogleMap googleMap) {
+        synchronized (googleMaps) {
+            googleMaps.put(map, googleMap);
+            googleMaps.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the map of the view, requesting it through getMapAsync and waiting for it on the calling thread if
+     * no batch call cached it yet. Returns null if the map isn't ready in time or if called on the UI thread,
+     * which would have to run the getMapAsync callback itself.
+     */
+    private static GoogleMap awaitMap(final MapView map) {
+        GoogleMap googleMap;
+        synchronized (googleMaps) {
+            googleMap = googleMaps.get(map);
+        }
+        if (googleMap != null || Looper.myLooper() == Looper.getMainLooper()) {
+            return googleMap;
+        }
+        AndroidNativeUtil.getActivity().runOnUiThread(new Runnable() {
+            public void run() {
+                map.getMapAsync(new OnMapReadyCallback() {
+                    public void onMapReady(GoogleMap googleMap) {
+                        cacheMap(map, googleMap);
+                    }
+                });
+            }
+        });
+        long deadline = System.currentTimeMillis() + MAP_TIMEOUT;
+        synchronized (googleMaps) {
+            while ((googleMap = googleMaps.get(map)) == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    googleMaps.wait(remaining);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+        return googleMap;
+    }
+
+    private static synchronized void unreference(int icon) {
+        Icon i = icons.get(icon);
+        if (i != null) {
+            i.references--;
+            if (i.references <= 0) {
+                icons.remove(icon);
+                ArrayList<Icon> sameHash = iconsByContent.get(i.hash);
+                sameHash.remove(i);
+                if (sameHash.isEmpty()) {
+                    iconsByContent.remove(i.hash);
+                }
+            }
+        }
+    }
+
+    private static void withMap(final View map, final OnMapReadyCallback callback) {
+        if (!(map instanceof MapView)) {
+            return;
+        }
+        AndroidNativeUtil.getActivity().runOnUiThread(new Runnable() {
+            public void run() {
+                ((MapView) map).getMapAsync(callback);
+            }
+        });
+    }
+
+    private static String[] splitTexts(String texts, int count) {
+        if (texts == null) {
+            return null;
+        }
+        String[] out = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = texts.indexOf('\u001f', start);
+            if (end < 0) {
+                end = texts.length();
+            }
+            out[i] = start <= end ? texts.substring(start, end) : "";
+            start = end + 1;
+        }
+        return out;
+    }
+
+    public boolean isSupported() {
+        return true;
+    }
+}
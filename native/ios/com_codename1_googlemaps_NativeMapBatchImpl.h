@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+#import <Foundation/Foundation.h>
+
+@interface com_codename1_googlemaps_NativeMapBatchImpl : NSObject {
+}
+
+-(int)registerIcon:(NSData*)param;
+-(void)releaseIcon:(int)param;
+-(void)addMarkers:(void*)param param1:(NSData*)param1 param2:(int)param2 param3:(NSData*)param3 param4:(NSData*)param4 param5:(NSData*)param5 param6:(NSData*)param6 param7:(NSString*)param7;
+-(void)removeMarkers:(void*)param param1:(NSData*)param1;
+-(NSData*)projectBatch:(void*)param param1:(NSData*)param1 param2:(NSData*)param2;
+-(NSData*)unprojectBatch:(void*)param param1:(NSData*)param1;
+-(BOOL)isSupported;
+@end
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+#import "com_codename1_googlemaps_NativeMapBatchImpl.h"
+#import "GoogleMaps/GoogleMaps.h"
+
+extern float scaleValue;
+
+// Markers, their icon ids and icons by id, only touched on the main queue.
+static NSMutableDictionary* batchMarkers = nil;
+static NSMutableDictionary* batchMarkerIcons = nil;
+static NSMutableDictionary* batchIcons = nil;
+
+// Icon reference counts by id and icon ids by image data, guarded by the class lock since registerIcon looks
+// them up on the calling thread.
+static NSMutableDictionary* batchIconReferences = nil;
+static NSMutableDictionary* batchIconData = nil;
+static NSMutableDictionary* batchIconKeys = nil;
+static int iconCounter = 0;
+
+static void initBatchState() {
+    if(batchMarkers == nil) {
+        batchMarkers = [[NSMutableDictionary alloc] init];
+        batchMarkerIcons = [[NSMutableDictionary alloc] init];
+        batchIcons = [[NSMutableDictionary alloc] init];
+    }
+}
+
+static void initIconRegistry() {
+    if(batchIconReferences == nil) {
+        batchIconReferences = [[NSMutableDictionary alloc] init];
+        batchIconData = [[NSMutableDictionary alloc] init];
+        batchIconKeys = [[NSMutableDictionary alloc] init];
+    }
+}
+
+// Returns NO if the icon isn't alive anymore, the decoded image is dropped once the count reaches 0.
+static BOOL referenceIcon(NSNumber* key, int count) {
+    BOOL dropped = NO;
+    @synchronized([com_codename1_googlemaps_NativeMapBatchImpl class]) {
+        initIconRegistry();
+        NSNumber* references = [batchIconReferences objectForKey:key];
+        if(references == nil) {
+            return NO;
+        }
+        int remaining = [references intValue] + count;
+        if(remaining <= 0) {
+            [batchIconReferences removeObjectForKey:key];
+            [batchIconKeys removeObjectForKey:[batchIconData objectForKey:key]];
+            [batchIconData removeObjectForKey:key];
+            dropped = YES;
+        } else {
+            [batchIconReferences setObject:[NSNumber numberWithInt:remaining] forKey:key];
+        }
+    }
+    if(dropped) {
+        [batchIcons removeObjectForKey:key];
+    }
+    return YES;
+}
+
+@implementation com_codename1_googlemaps_NativeMapBatchImpl
+
+-(int)registerIcon:(NSData*)param{
+    int key;
+    @synchronized([com_codename1_googlemaps_NativeMapBatchImpl class]) {
+        initIconRegistry();
+        // NSData keys compare by content, equal image bytes share the icon already decoded
+        NSNumber* existing = [batchIconKeys objectForKey:param];
+        if(existing != nil) {
+            int references = [[batchIconReferences objectForKey:existing] intValue];
+            [batchIconReferences setObject:[NSNumber numberWithInt:references + 1] forKey:existing];
+            return [existing intValue];
+        }
+        key = ++iconCounter;
+        NSNumber* k = [NSNumber numberWithInt:key];
+        NSData* data = [[param copy] autorelease];
+        [batchIconReferences setObject:[NSNumber numberWithInt:1] forKey:k];
+        [batchIconData setObject:data forKey:k];
+        [batchIconKeys setObject:k forKey:data];
+    }
+    [param retain];
+    dispatch_async(dispatch_get_main_queue(), ^{
+        NSAutoreleasePool *pool = [[NSAutoreleasePool alloc] init];
+        initBatchState();
+        [batchIcons setObject:[UIImage imageWithData:param scale:scaleValue] forKey:[NSNumber numberWithInt:key]];
+        [param release];
+        [pool release];
+    });
+    return key;
+}
+
+-(void)releaseIcon:(int)param{
+    dispatch_async(dispatch_get_main_queue(), ^{
+        NSAutoreleasePool *pool = [[NSAutoreleasePool alloc] init];
+        initBatchState();
+        referenceIcon([NSNumber numberWithInt:param], -1);
+        [pool release];
+    });
+}
+
+-(void)addMarkers:(void*)param param1:(NSData*)param1 param2:(int)param2 param3:(NSData*)param3 param4:(NSData*)param4 param5:(NSData*)param5 param6:(NSData*)param6 param7:(NSString*)param7{
+    GMSMapView* mapView = (GMSMapView*)param;
+    [param1 retain];
+    [param3 retain];
+    [param4 retain];
+    [param5 retain];
+    [param6 retain];
+    [param7 retain];
+    dispatch_async(dispatch_get_main_queue(), ^{
+        NSAutoreleasePool *pool = [[NSAutoreleasePool alloc] init];
+        initBatchState();
+        NSNumber* iconKey = [NSNumber numberWithInt:param2];
+        UIImage* img = [batchIcons objectForKey:iconKey];
+        int count = (int)([param1 length] / sizeof(long long));
+        const long long* ids = (const long long*)[param1 bytes];
+        const double* lat = (const double*)[param3 bytes];
+        const double* lon = (const double*)[param4 bytes];
+        const float* anchorU = (const float*)[param5 bytes];
+        const float* anchorV = (const float*)[param6 bytes];
+        NSArray* titles = nil;
+        if(param7 != nil) {
+            titles = [param7 componentsSeparatedByString:@"\x1f"];
+        }
+        if(img != nil && !referenceIcon(iconKey, count)) {
+            img = nil;
+        }
+        for(int i = 0 ; i < count ; i++) {
+            GMSMarker* marker = [[GMSMarker alloc] init];
+            marker.position = CLLocationCoordinate2DMake(lat[i], lon[i]);
+            marker.groundAnchor = CGPointMake(anchorU[i], anchorV[i]);
+            if(img != nil) {
+                marker.icon = img;
+            }
+            if(titles != nil && i < [titles count] && [[titles objectAtIndex:i] length] > 0) {
+                marker.title = [titles objectAtIndex:i];
+            }
+            // the map delegate belongs to the cn1lib, taps go through to the map and are hit tested in Java
+            marker.tappable = NO;
+            marker.map = mapView;
+            NSNumber* key = [NSNumber numberWithLongLong:ids[i]];
+            [batchMarkers setObject:marker forKey:key];
+            if(img != nil) {
+                [batchMarkerIcons setObject:iconKey forKey:key];
+            }
+            [marker release];
+        }
+        [param1 release];
+        [param3 release];
+        [param4 release];
+        [param5 release];
+        [param6 release];
+        [param7 release];
+        [pool release];
+    });
+}
+
+-(void)removeMarkers:(void*)param param1:(NSData*)param1{
+    [param1 retain];
+    dispatch_async(dispatch_get_main_queue(), ^{
+        NSAutoreleasePool *pool = [[NSAutoreleasePool alloc] init];
+        initBatchState();
+        int count = (int)([param1 length] / sizeof(long long));
+        const long long* ids = (const long long*)[param1 bytes];
+        for(int i = 0 ; i < count ; i++) {
+            NSNumber* key = [NSNumber numberWithLongLong:ids[i]];
+            GMSMarker* marker = [batchMarkers objectForKey:key];
+            if(marker != nil) {
+                marker.map = nil;
+                [batchMarkers removeObjectForKey:key];
+            }
+            NSNumber* iconKey = [batchMarkerIcons objectForKey:key];
+            if(iconKey != nil) {
+                referenceIcon(iconKey, -1);
+                [batchMarkerIcons removeObjectForKey:key];
+            }
+        }
+        [param1 release];
+        [pool release];
+    });
+}
+
+-(NSData*)projectBatch:(void*)param param1:(NSData*)param1 param2:(NSData*)param2{
+    GMSMapView* mapView = (GMSMapView*)param;
+    int count = (int)([param1 length] / sizeof(double));
+    NSMutableData* result = [NSMutableData dataWithLength:count * 2 * sizeof(int)];
+    dispatch_sync(dispatch_get_main_queue(), ^{
+        GMSProjection* projection = mapView.projection;
+        const double* lat = (const double*)[param1 bytes];
+        const double* lon = (const double*)[param2 bytes];
+        int* xy = (int*)[result mutableBytes];
+        for(int i = 0 ; i < count ; i++) {
+            CGPoint pp = [projection pointForCoordinate:CLLocationCoordinate2DMake(lat[i], lon[i])];
+            xy[i * 2] = (int)(pp.x * scaleValue);
+            xy[i * 2 + 1] = (int)(pp.y * scaleValue);
+        }
+    });
+    return result;
+}
+
+-(NSData*)unprojectBatch:(void*)param param1:(NSData*)param1{
+    GMSMapView* mapView = (GMSMapView*)param;
+    int count = (int)([param1 length] / sizeof(int) / 2);
+    NSMutableData* result = [NSMutableData dataWithLength:count * 2 * sizeof(double)];
+    dispatch_sync(dispatch_get_main_queue(), ^{
+        GMSProjection* projection = mapView.projection;
+        const int* xy = (const int*)[param1 bytes];
+        double* coords = (double*)[result mutableBytes];
+        for(int i = 0 ; i < count ; i++) {
+            CLLocationCoordinate2D c = [projection coordinateForPoint:CGPointMake(xy[i * 2] / scaleValue, xy[i * 2 + 1] / scaleValue)];
+            coords[i * 2] = c.latitude;
+            coords[i * 2 + 1] = c.longitude;
+        }
+    });
+    return result;
+}
+
+-(BOOL)isSupported{
+    return YES;
+}
+
+@end
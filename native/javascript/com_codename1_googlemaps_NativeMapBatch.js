@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+(function(exports){
+
+    var TEXT_SEPARATOR = '\u001f';
+
+    // The cn1lib keeps its google.maps.Map to itself, the map is found through the div it was created on (the
+    // peer passed to every call). The div is tagged by the map getters the cn1lib calls as soon as the map
+    // reports its first bounds.
+    var tracking = false;
+
+    function trackMaps() {
+        if (tracking || typeof google === 'undefined' || !google.maps || !google.maps.Map) {
+            return;
+        }
+        tracking = true;
+        var proto = google.maps.Map.prototype;
+        ['getZoom', 'getCenter', 'getBounds'].forEach(function(name) {
+            var getter = proto[name];
+            if (typeof getter !== 'function') {
+                return;
+            }
+            proto[name] = function() {
+                var div = this.getDiv();
+                if (div && div.cn1BatchMap !== this) {
+                    div.cn1BatchMap = this;
+                }
+                return getter.apply(this, arguments);
+            };
+        });
+    }
+
+    // Returns the map of the peer if it can convert coordinates, null otherwise.
+    function readyMap(el) {
+        trackMaps();
+        var map = el ? el.cn1BatchMap : undefined;
+        if (map && map.getProjection() && map.getBounds()) {
+            return map;
+        }
+        return null;
+    }
+
+    // Runs the callback with the map of the peer once it's ready. Callbacks run in call order so a removal
+    // never overtakes the batch that added the markers.
+    function whenReady(el, callback) {
+        el.cn1BatchPending = el.cn1BatchPending || [];
+        el.cn1BatchPending.push(callback);
+        if (el.cn1BatchPending.length == 1) {
+            flush(el);
+        }
+    }
+
+    function flush(el) {
+        var map = readyMap(el);
+        if (map === null) {
+            var found = el.cn1BatchMap;
+            if (found) {
+                google.maps.event.addListenerOnce(found, 'idle', function() {
+                    flush(el);
+                });
+            } else {
+                setTimeout(function() {
+                    flush(el);
+                }, 100);
+            }
+            return;
+        }
+        while (el.cn1BatchPending.length > 0) {
+            (el.cn1BatchPending.shift())(map);
+        }
+    }
+
+    // Icons by id, each holding its data URL, size and reference count. The data URL doubles as the content key
+    // so equal image bytes share one icon.
+    var icons = {};
+    var iconIds = {};
+    var iconCounter = 0;
+
+    // Reads the size of a PNG from its header, null for other formats which are then anchored by the map.
+    function pngSize(uint8) {
+        if (uint8.length < 24 || uint8[1] != 0x50 || uint8[2] != 0x4E || uint8[3] != 0x47) {
+            return null;
+        }
+        var unscaleCoord = window.cn1UnscaleCoord !== undefined ? window.cn1UnscaleCoord : function(x){return x};
+        var w = ((uint8[16] << 24) | (uint8[17] << 16) | (uint8[18] << 8) | uint8[19]) >>> 0;
+        var h = ((uint8[20] << 24) | (uint8[21] << 16) | (uint8[22] << 8) | uint8[23]) >>> 0;
+        return {width : unscaleCoord(w), height : unscaleCoord(h)};
+    }
+
+    // Returns the marker icon for an anchor, built once per icon and anchor.
+    function markerIcon(icon, u, v) {
+        var key = u + ',' + v;
+        var markerImage = icon.anchored[key];
+        if (markerImage === undefined) {
+            markerImage = {url : icon.url};
+            if (icon.size !== null) {
+                markerImage.scaledSize = new google.maps.Size(icon.size.width, icon.size.height);
+                markerImage.anchor = new google.maps.Point(u * icon.size.width, v * icon.size.height);
+            }
+            icon.anchored[key] = markerImage;
+        }
+        return markerImage;
+    }
+
+    function referenceIcon(id, count) {
+        var icon = icons[id];
+        if (icon === undefined) {
+            return;
+        }
+        icon.references += count;
+        if (icon.references <= 0) {
+            delete icons[id];
+            delete iconIds[icon.url];
+        }
+    }
+
+    // The world point of the north west corner of the viewport and the pixels per world unit, the map scale is
+    // 2^zoom. Positions are relative to the peer, in CSS pixels.
+    function viewport(map) {
+        var projection = map.getProjection();
+        var bounds = map.getBounds();
+        var ne = projection.fromLatLngToPoint(bounds.getNorthEast());
+        var sw = projection.fromLatLngToPoint(bounds.getSouthWest());
+        return {left : sw.x, top : ne.y, wraps : ne.x < sw.x, scale : Math.pow(2, map.getZoom())};
+    }
+
+    function markersOf(el) {
+        el.cn1BatchMarkers = el.cn1BatchMarkers || {};
+        return el.cn1BatchMarkers;
+    }
+
+var o = {};
+
+    o.registerIcon__byte_1ARRAY = function(data, callback) {
+        var uint8 = new Uint8Array(data);
+        var url = 'data:image/png;base64,' + window.arrayBufferToBase64(uint8.buffer);
+        var id = iconIds[url];
+        if (id !== undefined) {
+            icons[id].references++;
+        } else {
+            id = ++iconCounter;
+            icons[id] = {url : url, size : pngSize(uint8), anchored : {}, references : 1};
+            iconIds[url] = id;
+        }
+        callback.complete(id);
+    };
+
+    o.releaseIcon__int = function(id, callback) {
+        // Queued batches referenced the icon when they were added, they keep it alive.
+        referenceIcon(id, -1);
+        callback.complete();
+    };
+
+    o.addMarkers__com_codename1_ui_PeerComponent_long_1ARRAY_int_double_1ARRAY_double_1ARRAY_float_1ARRAY_float_1ARRAY_java_lang_String = function(el, ids, icon, lat, lon, anchorU, anchorV, texts, callback) {
+        if (el) {
+            var shared = icons[icon];
+            if (shared !== undefined) {
+                // Referenced right away so a release called after this batch can't drop the icon.
+                shared.references += ids.length;
+            }
+            whenReady(el, function(map) {
+                var titles = texts !== null ? texts.split(TEXT_SEPARATOR) : null;
+                var markers = markersOf(el);
+                for (var i = 0; i < ids.length; i++) {
+                    // Taps go through to the map and are hit tested in Java, like on iOS.
+                    var markerOpts = {
+                        map : map,
+                        clickable : false,
+                        position : new google.maps.LatLng(lat[i], lon[i])
+                    };
+                    if (shared !== undefined) {
+                        markerOpts.icon = markerIcon(shared, anchorU[i], anchorV[i]);
+                    }
+                    if (titles !== null && titles[i]) {
+                        markerOpts.title = titles[i];
+                    }
+                    var marker = new google.maps.Marker(markerOpts);
+                    marker.cn1BatchIcon = shared !== undefined ? icon : 0;
+                    markers[ids[i]] = marker;
+                }
+            });
+        }
+        callback.complete();
+    };
+
+    o.removeMarkers__com_codename1_ui_PeerComponent_long_1ARRAY = function(el, ids, callback) {
+        if (el) {
+            whenReady(el, function(map) {
+                var markers = markersOf(el);
+                for (var i = 0; i < ids.length; i++) {
+                    var marker = markers[ids[i]];
+                    if (marker) {
+                        delete markers[ids[i]];
+                        marker.setMap(null);
+                        referenceIcon(marker.cn1BatchIcon, -1);
+                    }
+                }
+            });
+        }
+        callback.complete();
+    };
+
+    o.projectBatch__com_codename1_ui_PeerComponent_double_1ARRAY_double_1ARRAY = function(el, lat, lon, callback) {
+        var map = readyMap(el);
+        if (map === null) {
+            callback.complete([]);
+            return;
+        }
+        var unscaleCoord = window.cn1UnscaleCoord !== undefined ? window.cn1UnscaleCoord : function(x){return x};
+        var projection = map.getProjection();
+        var view = viewport(map);
+        var xy = new Array(lat.length * 2);
+        for (var i = 0; i < lat.length; i++) {
+            var p = projection.fromLatLngToPoint(new google.maps.LatLng(lat[i], lon[i]));
+            var x = p.x;
+            if (view.wraps && x < view.left) {
+                // The viewport crosses the antimeridian.
+                x += 256;
+            }
+            xy[i * 2] = Math.round(unscaleCoord((x - view.left) * view.scale));
+            xy[i * 2 + 1] = Math.round(unscaleCoord((p.y - view.top) * view.scale));
+        }
+        callback.complete(xy);
+    };
+
+    o.unprojectBatch__com_codename1_ui_PeerComponent_int_1ARRAY = function(el, xy, callback) {
+        var map = readyMap(el);
+        if (map === null) {
+            callback.complete([]);
+            return;
+        }
+        var scaleCoord = window.cn1ScaleCoord !== undefined ? window.cn1ScaleCoord : function(x){return x};
+        var projection = map.getProjection();
+        var view = viewport(map);
+        var coords = new Array(xy.length);
+        for (var i = 0; i + 1 < xy.length; i += 2) {
+            var x = view.left + scaleCoord(xy[i]) / view.scale;
+            if (x >= 256) {
+                x -= 256;
+            }
+            var latLng = projection.fromPointToLatLng(new google.maps.Point(x, view.top + scaleCoord(xy[i + 1]) / view.scale));
+            coords[i] = latLng.lat();
+            coords[i + 1] = latLng.lng();
+        }
+        callback.complete(coords);
+    };
+
+    o.isSupported_ = function(callback) {
+        trackMaps();
+        callback.complete(true);
+    };
+
+exports.com_codename1_googlemaps_NativeMapBatch= o;
+
+})(cn1_get_native_interfaces());
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps;
+
+/**
+ * The simulator draws the map with the cn1lib's lightweight fallback so batches go through {@link MapBatch}'s
+ * per marker path.
+ */
+public class NativeMapBatchImpl implements com.codename1.googlemaps.NativeMapBatch {
+    public int registerIcon(byte[] icon) {
+        return 0;
+    }
+
+    public void releaseIcon(int icon) {
+    }
+
+    public void addMarkers(com.codename1.ui.PeerComponent map, long[] ids, int icon, double[] lat, double[] lon,
+            float[] anchorU, float[] anchorV, String texts) {
+    }
+
+    public void removeMarkers(com.codename1.ui.PeerComponent map, long[] ids) {
+    }
+
+    public int[] projectBatch(com.codename1.ui.PeerComponent map, double[] lat, double[] lon) {
+        return new int[0];
+    }
+
+    public double[] unprojectBatch(com.codename1.ui.PeerComponent map, int[] xy) {
+        return new double[0];
+    }
+
+    public boolean isSupported() {
+        return false;
+    }
+}
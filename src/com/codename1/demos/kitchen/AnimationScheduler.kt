@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen
+
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.Form
+import com.codename1.ui.Graphics
+import com.codename1.ui.animations.Animation
+import java.util.*
+
+/**
+ * Tracks the animations registered by the demos per form. Animations are parked (deregistered from their form)
+ * while the form isn't the current form or the application is stopped, and are registered again when the form
+ * is shown or the application is started.
+ */
+object AnimationScheduler {
+    private const val SHOW_LISTENER = "AnimationScheduler.showListener"
+    private val registrations = HashMap<Form, MutableList<Registration>>()
+    private var stopped = false
+
+    /**
+     * The number of animations that are currently registered with their form and ticking.
+     */
+    val activeAnimationCount: Int
+        get() {
+            var count = 0
+            for (list in registrations.values) {
+                for (registration in list) {
+                    if (!registration.parked) {
+                        count++
+                    }
+                }
+            }
+            return count
+        }
+
+    /**
+     * Registers an animation with the given form, it starts ticking right away if the form is showing.
+     *
+     * @param form the form the animation belongs to
+     * @param animation the animation
+     */
+    fun register(form: Form, animation: Animation) {
+        val list = registrations.getOrPut(form) { ArrayList() }
+        for (registration in list) {
+            if (registration.animation === animation) {
+                return
+            }
+        }
+        if (form.getClientProperty(SHOW_LISTENER) == null) {
+            form.putClientProperty(SHOW_LISTENER, true)
+            form.addShowListener { resume(form) }
+        }
+        val registration = Registration(form, animation)
+        list.add(registration)
+        if (!stopped) {
+            registration.parked = false
+            form.registerAnimated(registration)
+        }
+    }
+
+    /**
+     * Removes an animation that was added with [register].
+     *
+     * @param animation the animation
+     */
+    fun unregister(animation: Animation) {
+        val forms = registrations.keys.iterator()
+        while (forms.hasNext()) {
+            val form = forms.next()
+            val list = registrations[form]!!
+            val iter = list.iterator()
+            while (iter.hasNext()) {
+                val registration = iter.next()
+                if (registration.animation === animation) {
+                    form.deregisterAnimated(registration)
+                    iter.remove()
+                }
+            }
+            if (list.isEmpty()) {
+                forms.remove()
+            }
+        }
+    }
+
+    /**
+     * Called when the application starts or returns from the background.
+     */
+    fun start() {
+        stopped = false
+        val current = CN.getCurrentForm()
+        if (current != null) {
+            resume(current)
+        }
+    }
+
+    /**
+     * Called when the application is sent to the background, parks every animation.
+     */
+    fun stop() {
+        stopped = true
+        for (form in registrations.keys) {
+            park(form)
+        }
+    }
+
+    private fun resume(form: Form) {
+        // Showing a form hides the previous one.
+        for (other in registrations.keys) {
+            if (other !== form) {
+                park(other)
+            }
+        }
+        if (stopped) {
+            return
+        }
+        val list = registrations[form] ?: return
+        for (registration in list) {
+            if (registration.parked) {
+                registration.parked = false
+                form.registerAnimated(registration)
+            }
+        }
+    }
+
+    private fun park(form: Form) {
+        val list = registrations[form] ?: return
+        for (registration in list) {
+            if (!registration.parked) {
+                registration.parked = true
+                form.deregisterAnimated(registration)
+            }
+        }
+    }
+
+    /**
+     * Wraps the scheduled animation so it can park itself if it's ticked while its form isn't the current form.
+     */
+    private class Registration(val form: Form, val animation: Animation) : Animation {
+        var parked = true
+
+        override fun animate(): Boolean {
+            if (stopped || form !== CN.getCurrentForm()) {
+                // The form is iterating its animations right now, deregister once it's done.
+                CN.callSerially { park(form) }
+                return false
+            }
+            if (animation.animate()) {
+                if (animation is Component) {
+                    animation.repaint()
+                    return false
+                }
+                return true
+            }
+            return false
+        }
+
+        override fun paint(g: Graphics) {
+            animation.paint(g)
+        }
+    }
+}
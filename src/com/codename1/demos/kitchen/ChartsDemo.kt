@@ -23,6 +23,7 @@
 package com.codename1.demos.kitchen
 
 import com.codename1.demos.kitchen.charts.*
+import com.codename1.demos.kitchen.charts.models.XYMultipleSeriesEditor
 import com.codename1.ui.*
 import com.codename1.ui.layouts.BorderLayout
 import com.codename1.ui.layouts.BoxLayout
@@ -119,6 +120,13 @@ class ChartsDemo(parentForm: Form) : Demo() {
             showChart(chart)
         })
 
+        demoContainer.add(createComponent(Resources.getGlobalResources().getImage("chart-time.png"),
+                "Live Time Chart",
+                "A time chart fed by a streaming sensor") {
+            val chart = SensorValuesChart(true)
+            showChart(chart)
+        })
+
         return demoContainer
     }
 
@@ -131,11 +139,39 @@ class ChartsDemo(parentForm: Form) : Demo() {
         val backCommand = Command.create("", FontImage.createMaterial(FontImage.MATERIAL_ARROW_BACK, lastForm.uiManager.getComponentStyle("DemoTitleCommand"))
         ) { lastForm.showBack() }
         toolbar.setBackCommand(backCommand)
-        chartForm.add(BorderLayout.CENTER, demo.execute())
+        val chart = demo.execute()
+        val editor = demo.chartModelEditor
+        if (editor != null) {
+            if (editor is XYMultipleSeriesEditor) {
+                editor.chartChanged = {
+                    if (chart is CachedChartComponent) {
+                        chart.invalidate()
+                    }
+                    chart.repaint()
+                }
+            }
+            val editCommand = Command.create("", FontImage.createMaterial(FontImage.MATERIAL_EDIT, lastForm.uiManager.getComponentStyle("DemoTitleCommand"))
+            ) { showEditor(chartForm, editor) }
+            toolbar.addCommandToRightBar(editCommand)
+        }
+        chartForm.add(BorderLayout.CENTER, chart)
         chartForm.contentPane.uiid = "ComponentDemoContainer"
         chartForm.show()
     }
 
+    private fun showEditor(chartForm: Form, editor: Component) {
+        val editorForm = Form(chartForm.title, BorderLayout())
+        val toolbar = editorForm.toolbar
+        toolbar.uiid = "DemoToolbar"
+        toolbar.titleComponent.uiid = "ComponentDemoTitle"
+        val backCommand = Command.create("", FontImage.createMaterial(FontImage.MATERIAL_ARROW_BACK, chartForm.uiManager.getComponentStyle("DemoTitleCommand"))
+        ) { chartForm.showBack() }
+        toolbar.setBackCommand(backCommand)
+        editor.remove()
+        editorForm.add(BorderLayout.CENTER, editor)
+        editorForm.show()
+    }
+
     init {
         init("Charts", Resources.getGlobalResources().getImage("charts-demo-icon.png"), parentForm,
                 "https://github.com/codenameone/KitchenSink/blob/master/src/com/codename1/demos/kitchen/ChartsDemo.java")
@@ -23,14 +23,9 @@
 package com.codename1.demos.kitchen
 
 import com.codename1.ui.*
-import com.codename1.ui.geom.GeneralPath
 import com.codename1.ui.layouts.BorderLayout
 import com.codename1.ui.plaf.UIManager
-import java.util.*
-import java.util.Calendar
-import kotlin.math.cos
 import kotlin.math.min
-import kotlin.math.sin
 
 /**
  * This demo shows off low level graphics in Codename One and drawing of shapes, it also demonstrates the
@@ -39,18 +34,6 @@ import kotlin.math.sin
  * @author Sergey Gerashenko.
  */
 class ClockDemo(parentForm: Form) : Demo() {
-    // at 1-minute intervals
-    private var shortTickLen = 0
-
-    // at 5-minute intervals
-    private var medTickLen = 0
-
-    // at 15-minute intervals
-    private var longTickLen = 0
-
-    private var minuteHandWidth = 0f
-    private var hourHandWidth = 0f
-
     override fun createContentPane(): Container? {
         val demoForm = Form(demoId, BorderLayout())
         demoForm.contentPane.uiid = "ComponentDemoContainer"
@@ -70,37 +53,53 @@ class ClockDemo(parentForm: Form) : Demo() {
         toolbar.setBackCommand(backCommand)
         val clock = AnalogClock()
 
-        if (CN.isDesktop()) {
-            minuteHandWidth = 3f
-            hourHandWidth = 1f
-        } else {
-            minuteHandWidth = 6f
-            hourHandWidth = 3f
-        }
-
         refreshClockColor()
         demoForm.add(BorderLayout.CENTER, clock)
         demoForm.show()
         return null
     }
 
-    private inner class AnalogClock : Component() {
+    private class AnalogClock : Component() {
         private var lastRenderedTime: Long = 0
         private val padding = CN.convertToPixels(2f)
+        private val renderer = ClockRenderer()
 
-        fun start() {
-            componentForm.registerAnimated(this)
+        // Hand positions and radius of the last paint, used to compute the region that needs repainting.
+        private var paintedRadius = 0
+        private var paintedSecond = -1
+        private var paintedMinute = -1
+        private var paintedHour = -1
+        private val dirtyBounds = IntArray(4)
+
+        override fun initComponent() {
+            super.initComponent()
+            AnimationScheduler.register(componentForm, this)
         }
 
-        fun stop() {
-            componentForm.deregisterAnimated(this)
+        override fun deinitialize() {
+            AnimationScheduler.unregister(this)
+            super.deinitialize()
         }
 
         override fun animate(): Boolean {
-            if (System.currentTimeMillis() / 1000 != lastRenderedTime / 1000) {
-                lastRenderedTime = System.currentTimeMillis()
+            val now = System.currentTimeMillis()
+            if (now / 1000 == lastRenderedTime / 1000) {
+                return false
+            }
+            lastRenderedTime = now
+            if (paintedSecond < 0) {
                 return true
             }
+
+            // Only the area swept by the hands changes, repaint the union of their old and new bounds.
+            renderer.updateHandPositions(now)
+            resetBounds(dirtyBounds)
+            renderer.includeHands(dirtyBounds, paintedRadius, paintedSecond, paintedMinute, paintedHour)
+            renderer.includeHands(dirtyBounds, paintedRadius, renderer.secondPosition, renderer.minutePosition,
+                    renderer.hourPosition)
+            val stroke = HAND_BOUNDS_PADDING + renderer.minuteHandWidth.toInt()
+            repaint(absoluteX + width / 2 + dirtyBounds[0] - stroke, absoluteY + height / 2 + dirtyBounds[1] - stroke,
+                    dirtyBounds[2] - dirtyBounds[0] + stroke * 2, dirtyBounds[3] - dirtyBounds[1] + stroke * 2)
             return false
         }
 
@@ -110,185 +109,26 @@ class ClockDemo(parentForm: Form) : Demo() {
             val centerX = x + width / 2
             val centerY = y + height / 2
             val radius = min(width, height) / 2 - padding
-            drawClock(g, centerX, centerY, radius, 50, 30, 10, false)
-            start()
-        }
-    }
-
-    private fun drawTicks(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
-        val tickStroke = Stroke(2f, Stroke.CAP_BUTT, Stroke.JOIN_ROUND, 1f)
-        val ticksPath = GeneralPath()
-
-        // Draw a tick for each "second" (1 through 60)
-        for (i in 1..60) {
-
-            // default tick length is short
-            val len: Int = when {
-                i % 15 == 0 -> {
-                    // Longest tick at 15-minute intervals.
-                    longTickLen
-                }
-                i % 5 == 0 -> {
-                    // Medium ticks at 5-minute intervals.
-                    medTickLen
-                }
-                else -> {
-                    // Short ticks every minute.
-                    shortTickLen
-                }
-            }
-            val di = i.toDouble() // tick num as double for easier math.
-
-            // Get the angle from 12 O'Clock to this tick (radians)
-            val angleFrom12 = di / 60.0 * 2.0 * Math.PI
-
-            // Get the angle from 3 O'Clock to this tick
-            // Note: 3 O'Clock corresponds with zero angle in unit circle
-            // Makes it easier to do the math.
-            val angleFrom3 = Math.PI / 2.0 - angleFrom12
-
-            // Move to the outer edge of the circle at correct position
-            // for this tick.
-            ticksPath.moveTo(
-                    (centerX + cos(angleFrom3) * radius).toFloat(),
-                    (centerY - sin(angleFrom3) * radius).toFloat()
-            )
-
-            // Draw line inward along radius for length of tick mark.
-            ticksPath.lineTo(
-                    (centerX + cos(angleFrom3) * (radius - len)).toFloat(),
-                    (centerY - sin(angleFrom3) * (radius - len)).toFloat()
-            )
-        }
-
-        // Draw the ticks.
-        g.color = clockColor
-        g.drawShape(ticksPath, tickStroke)
-    }
-
-    private fun drawNumbers(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
-        val coordinates = arrayOfNulls<Coordinate>(12)
-
-        // Calculate all the numbers coordinates.
-        for (i in 1..12) {
-            // Calculate the string width and height so we can center it properly
-            val hourString = i.toString()
-            val charWidth = g.font.stringWidth(hourString)
-            val charHeight = g.font.height
-            val di = i.toDouble() // number as double for easier math
-
-            // Calculate the position along the edge of the clock where the number should
-            // be drawn.
-            // Get the angle from 12 O'Clock to this tick (radians).
-            val angleFrom12 = di / 12.0 * 2.0 * Math.PI
-
-            // Get the angle from 3 O'Clock to this tick
-            // Note: 3 O'Clock corresponds with zero angle in unit circle
-            // Makes it easier to do the math.
-            val angleFrom3 = Math.PI / 2.0 - angleFrom12
-            val extraRange = CN.convertToPixels(2f)
-
-            // Get diff between number position and clock center
-            val tx = (cos(angleFrom3) * (radius - longTickLen - extraRange)).toInt()
-            val ty = (-sin(angleFrom3) * (radius - longTickLen - extraRange)).toInt()
-            coordinates[i - 1] = Coordinate(tx + centerX - charWidth / 2, ty + centerY - charHeight / 2)
+            renderer.draw(g, centerX, centerY, radius, LONG_TICK_LEN, MED_TICK_LEN, SHORT_TICK_LEN, false, clockColor)
+            paintedRadius = radius
+            paintedSecond = renderer.secondPosition
+            paintedMinute = renderer.minutePosition
+            paintedHour = renderer.hourPosition
         }
 
-        // Draw all the numbers.
-        for (i in 1..12) {
-            val hourString = i.toString()
-            g.drawString(hourString, coordinates[i - 1]!!.x, coordinates[i - 1]!!.y)
+        private fun resetBounds(bounds: IntArray) {
+            bounds[0] = Int.MAX_VALUE
+            bounds[1] = Int.MAX_VALUE
+            bounds[2] = Int.MIN_VALUE
+            bounds[3] = Int.MIN_VALUE
         }
     }
 
-    private fun drawSecondHand(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
-        val secondHand = GeneralPath()
-        secondHand.moveTo(centerX.toFloat(), centerY.toFloat())
-        secondHand.lineTo(centerX.toFloat(), (centerY - (radius - medTickLen)).toFloat())
-        val translatedSecondHand = secondHand.createTransformedShape(
-                Transform.makeTranslation(0f, 5f)
-        )
-        val calendar = Calendar.getInstance(TimeZone.getDefault())
-
-        // Calculate the angle of the second hand
-        val second = calendar[Calendar.SECOND].toDouble()
-        val secondAngle = second / 60.0 * 2.0 * Math.PI
-        g.rotateRadians(secondAngle.toFloat(), centerX, centerY)
-        g.color = 0xff0000
-        g.drawShape(
-                translatedSecondHand,
-                Stroke(2f, Stroke.CAP_BUTT, Stroke.JOIN_BEVEL, 1f)
-        )
-        g.resetAffine()
-    }
-
-    private fun drawMinuteHand(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
-        // Draw the minute hand
-        val minuteHand = GeneralPath()
-        minuteHand.moveTo(centerX.toFloat(), centerY.toFloat())
-        minuteHand.lineTo(centerX.toFloat() + minuteHandWidth, centerY.toFloat())
-        minuteHand.lineTo(centerX.toFloat() + 1, (centerY - (radius - shortTickLen)).toFloat())
-        minuteHand.lineTo(centerX.toFloat() - 1, (centerY - (radius - shortTickLen)).toFloat())
-        minuteHand.lineTo(centerX.toFloat() - minuteHandWidth, centerY.toFloat())
-        minuteHand.closePath()
-
-        // Translate the minute hand slightly down so it overlaps the center
-        val translatedMinuteHand = minuteHand.createTransformedShape(
-                Transform.makeTranslation(0f, 5f)
-        )
-        val calendar = Calendar.getInstance(TimeZone.getDefault())
-        val minute = calendar[Calendar.MINUTE].toDouble() +
-                calendar[Calendar.SECOND].toDouble() / 60.0
-        val minuteAngle = minute / 60.0 * 2.0 * Math.PI
-
-        // Rotate and draw the minute hand
-        g.rotateRadians(minuteAngle.toFloat(), centerX, centerY)
-        g.color = clockColor
-        g.fillShape(translatedMinuteHand)
-        g.resetAffine()
-    }
-
-    private fun drawHourHand(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
-        // Draw the hour hand
-        val hourHand = GeneralPath()
-        hourHand.moveTo(centerX.toFloat(), centerY.toFloat())
-        hourHand.lineTo(centerX.toFloat() + hourHandWidth, centerY.toFloat())
-        hourHand.lineTo(centerX.toFloat() + 1, (centerY - (radius - longTickLen) * 0.75).toFloat())
-        hourHand.lineTo(centerX.toFloat() - 1, (centerY - (radius - longTickLen) * 0.75).toFloat())
-        hourHand.lineTo(centerX.toFloat() - hourHandWidth, centerY.toFloat())
-        hourHand.closePath()
-        val translatedHourHand = hourHand.createTransformedShape( Transform.makeTranslation(0f, 5f) )
-
-        val calendar = Calendar.getInstance(TimeZone.getDefault())
-        val hour = (calendar[Calendar.HOUR_OF_DAY] % 12).toDouble() +
-                calendar[Calendar.MINUTE].toDouble() / 60.0
-        val angle = hour / 12.0 * 2.0 * Math.PI
-        g.rotateRadians(angle.toFloat(), centerX, centerY)
-        g.color = clockColor
-        g.fillShape(translatedHourHand)
-        g.resetAffine()
-    }
-
-    private fun drawClock(g: Graphics, centerX: Int, centerY: Int, radius: Int,
-                          longTickLen: Int, medTickLen: Int, shortTickLen: Int, smallVersion: Boolean) {
-        this.longTickLen = longTickLen
-        this.medTickLen = medTickLen
-        this.shortTickLen = shortTickLen
-
-        drawTicks(g, centerX, centerY, radius)
-        if (!smallVersion) {
-            drawNumbers(g, centerX, centerY, radius)
-        }
-
-        drawSecondHand(g, centerX, centerY, radius)
-        drawMinuteHand(g, centerX, centerY, radius)
-        drawHourHand(g, centerX, centerY, radius)
-    }
-
-    private inner class ClockImage : Image {
+    private class ClockImage : Image {
         private val defaultWidth = 250
         private val defaultHeight = 250
         private var lastRenderedTime: Long = 0
+        private val renderer = ClockRenderer()
         private var width: Int
         private var height: Int
 
@@ -335,7 +175,7 @@ class ClockDemo(parentForm: Form) : Demo() {
             val radius = min(getWidth(), getHeight()) / 2
             val centerX = x + w / 2
             val centerY = y + h / 2
-            drawClock(g, centerX, centerY, radius, 10, 6, 2, true)
+            renderer.draw(g, centerX, centerY, radius, 10, 6, 2, true, clockColor)
         }
 
         override fun animate(): Boolean {
@@ -347,8 +187,14 @@ class ClockDemo(parentForm: Form) : Demo() {
         }
     }
 
-    private inner class Coordinate(val x: Int, val y: Int)
     companion object {
+        private const val HAND_BOUNDS_PADDING = 3
+
+        // Tick lengths of the full screen clock.
+        private const val LONG_TICK_LEN = 50
+        private const val MED_TICK_LEN = 30
+        private const val SHORT_TICK_LEN = 10
+
         private var clockColor = 0
         fun refreshClockColor() {
             clockColor = UIManager.getInstance().getComponentStyle("ClockComponent").fgColor
@@ -359,4 +205,4 @@ class ClockDemo(parentForm: Form) : Demo() {
         init("Clock", ClockImage(), parentForm,
                 "https://github.com/codenameone/KitchenSink/blob/master/src/com/codename1/demos/kitchen/ClockDemo.java")
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen
+
+import com.codename1.ui.CN
+import com.codename1.ui.Font
+import com.codename1.ui.Graphics
+import com.codename1.ui.Image
+import com.codename1.ui.Stroke
+import com.codename1.ui.geom.GeneralPath
+import java.util.*
+import kotlin.math.cos
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sin
+
+/**
+ * Positions and draws the dial and the hands of an analog clock. Each clock owns its renderer: the hand
+ * positions, the paths and the cached dial are reused from frame to frame, so laying out and painting a frame
+ * doesn't allocate. Angles come from sin/cos lookup tables with one entry per second of the dial.
+ */
+class ClockRenderer {
+    var minuteHandWidth = if (CN.isDesktop()) 3f else 6f
+    var hourHandWidth = if (CN.isDesktop()) 1f else 3f
+
+    /**
+     * The dial positions of the hands computed by the last [layout].
+     */
+    var secondPosition = 0
+        private set
+    var minutePosition = 0
+        private set
+    var hourPosition = 0
+        private set
+
+    private var shortTickLen = 0
+    private var medTickLen = 0
+    private var longTickLen = 0
+    private val calendar = Calendar.getInstance(TimeZone.getDefault())
+    private val currentTime = Date()
+    private val ticksPath = GeneralPath()
+    private val secondPath = GeneralPath()
+    private val minutePath = GeneralPath()
+    private val hourPath = GeneralPath()
+    private val tickStroke = Stroke(2f, Stroke.CAP_BUTT, Stroke.JOIN_ROUND, 1f)
+    private val secondHandStroke = Stroke(2f, Stroke.CAP_BUTT, Stroke.JOIN_BEVEL, 1f)
+    private val dial = DialLayer()
+
+    /**
+     * Draws the whole clock for the current time.
+     */
+    fun draw(g: Graphics, centerX: Int, centerY: Int, radius: Int, longTickLen: Int, medTickLen: Int,
+             shortTickLen: Int, smallVersion: Boolean, color: Int) {
+        layout(System.currentTimeMillis(), centerX, centerY, radius, longTickLen, medTickLen, shortTickLen)
+        dial.draw(g, centerX, centerY, radius, smallVersion, color)
+        g.color = 0xff0000
+        g.drawShape(secondPath, secondHandStroke)
+        g.color = color
+        g.fillShape(minutePath)
+        g.fillShape(hourPath)
+    }
+
+    /**
+     * Computes the hand positions for the given time and builds the hand paths.
+     */
+    fun layout(time: Long, centerX: Int, centerY: Int, radius: Int, longTickLen: Int, medTickLen: Int,
+               shortTickLen: Int) {
+        this.longTickLen = longTickLen
+        this.medTickLen = medTickLen
+        this.shortTickLen = shortTickLen
+        updateHandPositions(time)
+
+        val sin = DIAL_SIN[secondPosition]
+        val cos = DIAL_COS[secondPosition]
+        secondPath.reset()
+        moveRotated(secondPath, centerX, centerY, 0f, HAND_OFFSET, sin, cos)
+        lineRotated(secondPath, centerX, centerY, 0f, HAND_OFFSET - (radius - medTickLen), sin, cos)
+        buildHand(minutePath, centerX, centerY, minuteHandWidth, (radius - shortTickLen).toFloat(), minutePosition)
+        buildHand(hourPath, centerX, centerY, hourHandWidth, (radius - longTickLen) * 0.75f, hourPosition)
+    }
+
+    /**
+     * Updates the dial positions of the three hands for the given time.
+     */
+    fun updateHandPositions(time: Long) {
+        currentTime.time = time
+        calendar.time = currentTime
+        val second = calendar[Calendar.SECOND]
+        val minute = calendar[Calendar.MINUTE]
+        val hour = calendar[Calendar.HOUR_OF_DAY] % 12
+        secondPosition = second * POSITIONS_PER_MINUTE
+        minutePosition = minute * POSITIONS_PER_MINUTE + second
+        hourPosition = (hour * 60 + minute) * POSITIONS_PER_HOUR / 60
+    }
+
+    /**
+     * Grows the given bounds (minX, minY, maxX, maxY relative to the clock center) to contain the three hands at
+     * the given dial positions.
+     */
+    fun includeHands(bounds: IntArray, radius: Int, second: Int, minute: Int, hour: Int) {
+        includeHandBounds(bounds, second, 0f, (radius - medTickLen).toFloat())
+        includeHandBounds(bounds, minute, minuteHandWidth, (radius - shortTickLen).toFloat())
+        includeHandBounds(bounds, hour, hourHandWidth, (radius - longTickLen) * 0.75f)
+    }
+
+    /**
+     * Fills a tapered hand pointing at the given dial position. The hand is translated slightly down so it
+     * overlaps the center and then rotated using the lookup tables, so no transform or shape is allocated.
+     */
+    private fun buildHand(path: GeneralPath, centerX: Int, centerY: Int, baseWidth: Float, length: Float, position: Int) {
+        val sin = DIAL_SIN[position]
+        val cos = DIAL_COS[position]
+        path.reset()
+        moveRotated(path, centerX, centerY, 0f, HAND_OFFSET, sin, cos)
+        lineRotated(path, centerX, centerY, baseWidth, HAND_OFFSET, sin, cos)
+        lineRotated(path, centerX, centerY, 1f, HAND_OFFSET - length, sin, cos)
+        lineRotated(path, centerX, centerY, -1f, HAND_OFFSET - length, sin, cos)
+        lineRotated(path, centerX, centerY, -baseWidth, HAND_OFFSET, sin, cos)
+        path.closePath()
+    }
+
+    private fun moveRotated(path: GeneralPath, centerX: Int, centerY: Int, x: Float, y: Float, sin: Float, cos: Float) {
+        path.moveTo(centerX + x * cos - y * sin, centerY + x * sin + y * cos)
+    }
+
+    private fun lineRotated(path: GeneralPath, centerX: Int, centerY: Int, x: Float, y: Float, sin: Float, cos: Float) {
+        path.lineTo(centerX + x * cos - y * sin, centerY + x * sin + y * cos)
+    }
+
+    private fun includeHandBounds(bounds: IntArray, position: Int, baseWidth: Float, length: Float) {
+        val sin = DIAL_SIN[position]
+        val cos = DIAL_COS[position]
+        includeRotated(bounds, baseWidth, HAND_OFFSET, sin, cos)
+        includeRotated(bounds, -baseWidth, HAND_OFFSET, sin, cos)
+        includeRotated(bounds, 1f, HAND_OFFSET - length, sin, cos)
+        includeRotated(bounds, -1f, HAND_OFFSET - length, sin, cos)
+    }
+
+    private fun includeRotated(bounds: IntArray, x: Float, y: Float, sin: Float, cos: Float) {
+        val rx = (x * cos - y * sin).toInt()
+        val ry = (x * sin + y * cos).toInt()
+        bounds[0] = min(bounds[0], rx)
+        bounds[1] = min(bounds[1], ry)
+        bounds[2] = max(bounds[2], rx)
+        bounds[3] = max(bounds[3], ry)
+    }
+
+    private fun drawTicks(g: Graphics, centerX: Int, centerY: Int, radius: Int, color: Int) {
+        ticksPath.reset()
+
+        // Draw a tick for each "second" (1 through 60)
+        for (i in 1..60) {
+
+            // default tick length is short
+            val len: Int = when {
+                i % 15 == 0 -> {
+                    // Longest tick at 15-minute intervals.
+                    longTickLen
+                }
+                i % 5 == 0 -> {
+                    // Medium ticks at 5-minute intervals.
+                    medTickLen
+                }
+                else -> {
+                    // Short ticks every minute.
+                    shortTickLen
+                }
+            }
+            val position = i % 60 * POSITIONS_PER_MINUTE
+            val sin = DIAL_SIN[position]
+            val cos = DIAL_COS[position]
+
+            // Move to the outer edge of the circle at correct position
+            // for this tick.
+            ticksPath.moveTo(centerX + sin * radius, centerY - cos * radius)
+
+            // Draw line inward along radius for length of tick mark.
+            ticksPath.lineTo(centerX + sin * (radius - len), centerY - cos * (radius - len))
+        }
+
+        // Draw the ticks.
+        g.color = color
+        g.drawShape(ticksPath, tickStroke)
+    }
+
+    private fun drawNumbers(g: Graphics, centerX: Int, centerY: Int, radius: Int) {
+        val charHeight = g.font.height
+        val extraRange = CN.convertToPixels(2f)
+        val numbersRadius = radius - longTickLen - extraRange
+        for (i in 1..12) {
+            // Calculate the string width so we can center it properly
+            val hourString = HOUR_LABELS[i - 1]
+            val charWidth = g.font.stringWidth(hourString)
+
+            // Calculate the position along the edge of the clock where the number should be drawn.
+            val position = i % 12 * POSITIONS_PER_HOUR
+            val tx = (DIAL_SIN[position] * numbersRadius).toInt()
+            val ty = (-DIAL_COS[position] * numbersRadius).toInt()
+            g.drawString(hourString, tx + centerX - charWidth / 2, ty + centerY - charHeight / 2)
+        }
+    }
+
+    /**
+     * The ticks and numerals of the clock never move, so they are rendered once into a mutable image and only
+     * the hands are drawn on every frame. The layer is rebuilt when the radius or the clock color changes.
+     */
+    private inner class DialLayer {
+        private var image: Image? = null
+        private var radius = -1
+        private var color = 0
+        private var font: Font? = null
+        private var shapesSupported = true
+
+        fun draw(g: Graphics, centerX: Int, centerY: Int, radius: Int, smallVersion: Boolean, color: Int) {
+            if (radius <= 0) {
+                return
+            }
+            if (shapesSupported && (image == null || this.radius != radius || this.color != color || font != g.font)) {
+                render(g, radius, smallVersion, color)
+            }
+            val dialImage = image
+            if (dialImage == null) {
+                // Shapes can't be drawn on a mutable image on this platform, draw the dial directly.
+                drawTicks(g, centerX, centerY, radius, color)
+                if (!smallVersion) {
+                    drawNumbers(g, centerX, centerY, radius)
+                }
+                return
+            }
+            g.drawImage(dialImage, centerX - radius - 1, centerY - radius - 1)
+        }
+
+        private fun render(g: Graphics, radius: Int, smallVersion: Boolean, color: Int) {
+            this.radius = radius
+            this.color = color
+            font = g.font
+            val size = radius * 2 + 2
+            val dialImage = Image.createImage(size, size, 0)
+            val dialGraphics = dialImage.graphics
+            if (!dialGraphics.isShapeSupported) {
+                shapesSupported = false
+                image = null
+                return
+            }
+            dialGraphics.isAntiAliased = true
+            dialGraphics.font = g.font
+            drawTicks(dialGraphics, radius + 1, radius + 1, radius, color)
+            if (!smallVersion) {
+                drawNumbers(dialGraphics, radius + 1, radius + 1, radius)
+            }
+            image = dialImage
+        }
+    }
+
+    companion object {
+        // The dial is split into one position per second of an hour, which is fine enough for the minute hand
+        // (minute * 60 + second) and for the hour hand (5 positions per minute of the 12 hours).
+        private const val POSITIONS = 3600
+        private const val POSITIONS_PER_MINUTE = POSITIONS / 60
+        private const val POSITIONS_PER_HOUR = POSITIONS / 12
+        private const val HAND_OFFSET = 5f
+
+        // sin/cos of the clockwise angle from 12 O'Clock for every dial position.
+        private val DIAL_SIN = FloatArray(POSITIONS) { sin(it * 2.0 * Math.PI / POSITIONS).toFloat() }
+        private val DIAL_COS = FloatArray(POSITIONS) { cos(it * 2.0 * Math.PI / POSITIONS).toFloat() }
+        private val HOUR_LABELS = Array(12) { (it + 1).toString() }
+    }
+}
@@ -57,6 +57,7 @@ open class KitchenSinkKotlin {
     }
 
     fun start() {
+        AnimationScheduler.start()
         if (current != null) {
             current!!.show()
             return
@@ -70,6 +71,7 @@ open class KitchenSinkKotlin {
     }
 
     fun stop() {
+        AnimationScheduler.stop()
         current = CN.getCurrentForm()
         if (current is Dialog) {
             (current as Dialog).dispose()
@@ -25,9 +25,14 @@ package com.codename1.demos.kitchen
 import com.codename1.components.FloatingActionButton
 import com.codename1.components.SpanLabel
 import com.codename1.components.ToastBar
+import com.codename1.demos.kitchen.maps.MapProjection
+import com.codename1.googlemaps.MapBatch
 import com.codename1.googlemaps.MapContainer
+import com.codename1.googlemaps.MarkerClusterer
 import com.codename1.maps.Coord
 import com.codename1.ui.*
+import com.codename1.ui.events.ActionEvent
+import com.codename1.ui.events.ActionListener
 import com.codename1.ui.layouts.BorderLayout
 import com.codename1.ui.layouts.BoxLayout
 import com.codename1.ui.layouts.FlowLayout
@@ -46,6 +51,10 @@ class MapsDemo(parentForm: Form) : Demo() {
     private val googleMapsHTMLKey: String? = null
     var markerList: MutableList<Coord> = ArrayList()
 
+    // The markers and paths added by hand, removed one by one since clearing the map layers would also wipe the
+    // clustered markers behind the back of their batch.
+    private val mapObjects = ArrayList<MapContainer.MapObject>()
+
     override fun createContentPane(): Container? {
         val demoContainer = Container(BorderLayout(), "DemoContainer")
 
@@ -78,39 +87,71 @@ class MapsDemo(parentForm: Form) : Demo() {
         val markerImg = FontImage.createMaterial(FontImage.MATERIAL_PLACE,
                 UIManager.getInstance().getComponentStyle("MapsPlace"))
         val markerImgSize = CN.convertToPixels(10f)
+        // Encoded once so every marker ships the same image data, the native map decodes it only once.
+        val markerIcon = EncodedImage.createFromImage(markerImg, false).scaledEncoded(markerImgSize, markerImgSize)
+
+        // Taps are converted in Java so they never wait for the native map.
+        val batch = MapBatch(map)
+        val projection = MapProjection(map, batch)
 
+        // Created before the tap listener below, it consumes the taps on its markers.
+        val clusterer = MarkerClusterer(map, markerIcon, batch)
         map.addTapListener { e ->
-            val currLocation: Coord = map.getCoordAtPosition(e.x, e.y)
+            if (e.isConsumed) {
+                return@addTapListener
+            }
+            val currLocation: Coord = projection.toCoord(e.x, e.y)
             val placeName = TextComponent().labelAndHint("Mark name: ")
             val ok = Command("Ok")
             val cancel = Command("Cancel")
             if (Dialog.show("Enter Note", placeName, ok, cancel) === ok && placeName.text.isNotEmpty()) {
-                map.addMarker(EncodedImage.createFromImage(markerImg, false).scaledEncoded(markerImgSize, markerImgSize),
+                mapObjects.add(map.addMarker(markerIcon,
                         currLocation,
                         placeName.text,
                         "",
-                        null)
+                        null))
                 markerList.add(currLocation)
             }
         }
 
+        val btnAddMany = Button("Add 5000", "MapsButton")
+        btnAddMany.addActionListener {
+            // Scatter places over the visible area, the clusterer keeps the map responsive.
+            val box = map.boundingBox
+            val random = Random()
+            val south = box.southWest.latitude
+            val west = box.southWest.longitude
+            val latSpan = box.northEast.latitude - south
+            val lonSpan = box.northEast.longitude - west
+            for (i in 0 until 5000) {
+                val name = "Place " + (clusterer.size + 1)
+                clusterer.add(Coord(south + random.nextDouble() * latSpan, west + random.nextDouble() * lonSpan),
+                        name, ActionListener<ActionEvent> { ToastBar.showInfoMessage(name) })
+            }
+            clusterer.refresh()
+        }
+
         val btnClearAll = Button("Clear All", "MapsButton")
         btnClearAll.addActionListener {
-            map.clearMapLayers()
+            clusterer.clear()
+            for (mapObject in mapObjects) {
+                map.removeMapObject(mapObject)
+            }
+            mapObjects.clear()
             markerList.clear()
         }
 
         val btnAddPath = Button("Add Path", "MapsButton")
         btnAddPath.addActionListener {
             if (markerList.size > 1) {
-                map.addPath(*markerList.toTypedArray())
+                mapObjects.add(map.addPath(*markerList.toTypedArray()))
             } else {
                 ToastBar.showInfoMessage("You need add more markers(try to press the map)")
             }
         }
 
         val root = LayeredLayout.encloseIn(BorderLayout.center(map),
-                BorderLayout.south(FlowLayout.encloseBottom(btnAddPath, btnClearAll)))
+                BorderLayout.south(FlowLayout.encloseBottom(btnAddPath, btnAddMany, btnClearAll)))
 
         return moveToCurrentLocation.bindFabToContainer(root)
     }
@@ -30,9 +30,15 @@ import com.codename1.charts.renderers.XYMultipleSeriesRenderer
 import com.codename1.charts.renderers.XYSeriesRenderer
 import com.codename1.charts.views.AbstractChart
 import com.codename1.charts.views.PointStyle
+import com.codename1.charts.views.XYChart
+import com.codename1.demos.kitchen.charts.models.ColumnarXYSeries
+import com.codename1.demos.kitchen.charts.models.Lttb
+import com.codename1.demos.kitchen.charts.models.VersionedCategorySeries
+import com.codename1.demos.kitchen.charts.models.VersionedMultipleCategorySeries
 import com.codename1.ui.CN
 import com.codename1.ui.Display
 import com.codename1.ui.Font
+import com.codename1.ui.Graphics
 import com.codename1.ui.plaf.UIManager
 import java.util.*
 
@@ -80,17 +86,24 @@ abstract class AbstractDemoChart : IDemoChart {
                     yValues: List<DoubleArray>, scale: Int) {
         val length = titles.size
         for (i in 0 until length) {
-            val series = XYSeries(titles[i], scale)
-            val xV = xValues[i]
-            val yV = yValues[i]
-            val seriesLength = xV.size
-            for (k in 0 until seriesLength) {
-                series.add(xV[k], yV[k])
-            }
+            val series = createSeries(titles[i], xValues[i], yValues[i], scale)
             dataset.addSeries(series)
         }
     }
 
+    /**
+     * Creates a series for the given values. Sorted values are wrapped by a [ColumnarXYSeries] without being
+     * copied, the others are copied into one in a single sorted batch.
+     */
+    private fun createSeries(title: String?, x: DoubleArray, y: DoubleArray, scale: Int): XYSeries {
+        if (Lttb.isSorted(x)) {
+            return ColumnarXYSeries.wrap(title, x, y, scale)
+        }
+        val series = ColumnarXYSeries(title, scale)
+        series.addAll(x, y, 0, x.size)
+        return series
+    }
+
     /**
      * Builds an XY multiple series renderer.
      *
@@ -152,22 +165,21 @@ abstract class AbstractDemoChart : IDemoChart {
      * Builds an XY multiple time dataset using the provided values.
      *
      * @param titles the series titles
-     * @param xValues the values for the X axis
+     * @param xValues the times for the X axis in milliseconds
      * @param yValues the values for the Y axis
      * @return the XY multiple time dataset
      */
-    protected fun buildDateDataset(titles: Array<String?>, xValues: List<Array<Date?>>,
+    protected fun buildDateDataset(titles: Array<String?>, xValues: List<LongArray>,
                                    yValues: List<DoubleArray>): XYMultipleSeriesDataset {
         val dataset = XYMultipleSeriesDataset()
         val length = titles.size
         for (i in 0 until length) {
-            val series = TimeSeries(titles[i])
             val xV = xValues[i]
-            val yV = yValues[i]
-            val seriesLength = xV.size
-            for (k in 0 until seriesLength) {
-                series.add(xV[k], yV[k])
+            val times = DoubleArray(xV.size)
+            for (k in xV.indices) {
+                times[k] = xV[k].toDouble()
             }
+            val series = createSeries(titles[i], times, yValues[i], 0)
             dataset.addSeries(series)
         }
         return dataset
@@ -179,8 +191,8 @@ abstract class AbstractDemoChart : IDemoChart {
      * @param values the values
      * @return the category series
      */
-    protected fun buildCategoryDataset(title: String?, values: DoubleArray): CategorySeries {
-        val series = CategorySeries(title)
+    protected fun buildCategoryDataset(title: String?, values: DoubleArray): VersionedCategorySeries {
+        val series = VersionedCategorySeries(title)
         var k = 0
         for (value in values) {
             series.add("Project " + ++k, value)
@@ -196,8 +208,8 @@ abstract class AbstractDemoChart : IDemoChart {
      * @return the category series
      */
     protected fun buildMultipleCategoryDataset(title: String?,
-                                               titles: List<Array<String?>?>, values: List<DoubleArray?>): MultipleCategorySeries {
-        val series = MultipleCategorySeries(title)
+                                               titles: List<Array<String?>?>, values: List<DoubleArray?>): VersionedMultipleCategorySeries {
+        val series = VersionedMultipleCategorySeries(title)
         var k = 0
         for (value in values) {
             series.add("2007  $k", titles[k], value)
@@ -294,11 +306,50 @@ abstract class AbstractDemoChart : IDemoChart {
         }
     }
 
-    protected fun newChart(chart: AbstractChart?): ChartComponent {
-        val c = ChartComponent(chart)
+    /**
+     * Limits the points drawn for every large series of the chart to about twice the plot width in pixels. The
+     * series keep all their points, only the visible range handed to the chart while painting is reduced, see
+     * [ColumnarXYSeries.renderLimit].
+     *
+     * @param chart the chart
+     * @param plotWidth the width of the plot in pixels
+     */
+    protected fun downsample(chart: XYChart, plotWidth: Int) {
+        val limit = Math.max(plotWidth * 2, MIN_DOWNSAMPLE_POINTS)
+        for (series in chart.dataset.series) {
+            if (series is ColumnarXYSeries) {
+                series.renderLimit = limit
+            }
+        }
+    }
+
+    /**
+     * Creates the component showing a chart.
+     *
+     * @param chart the chart
+     * @param crosshair true to highlight the point under the finger of an XY chart
+     * @return the component
+     */
+    protected fun newChart(chart: AbstractChart?, crosshair: Boolean = false): ChartComponent {
+        val c: CachedChartComponent = object : CachedChartComponent(chart) {
+            override fun paint(g: Graphics) {
+                if (chart is XYChart) {
+                    downsample(chart, width)
+                }
+                super.paint(g)
+            }
+        }
+        if (crosshair && chart is XYChart) {
+            c.crosshair = ChartCrosshair(chart)
+        }
         c.isFocusable = true
         c.isZoomEnabled = true
         c.isPanEnabled = true
         return c
     }
+
+    companion object {
+        // Visible ranges at or below this size are always drawn as is.
+        private const val MIN_DOWNSAMPLE_POINTS = 512
+    }
 }
\ No newline at end of file
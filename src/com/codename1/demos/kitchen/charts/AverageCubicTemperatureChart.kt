@@ -25,7 +25,6 @@ package com.codename1.demos.kitchen.charts
 import com.codename1.charts.models.XYMultipleSeriesDataset
 import com.codename1.charts.renderers.XYSeriesRenderer
 import com.codename1.charts.util.ColorUtil
-import com.codename1.charts.views.CubicLineChart
 import com.codename1.charts.views.PointStyle
 import com.codename1.demos.kitchen.charts.models.XYMultipleSeriesEditor
 import com.codename1.ui.Component
@@ -92,7 +91,7 @@ class AverageCubicTemperatureChart : AbstractDemoChart() {
         renderer.zoomLimits = doubleArrayOf(-10.0, 20.0, -10.0, 40.0)
         renderer.margins = intArrayOf(20, 30, 80, 0)
         initRenderer(renderer)
-        val chart = CubicLineChart(
+        val chart = CachedCubicLineChart(
                 dataSet,
                 renderer,
                 0.33f
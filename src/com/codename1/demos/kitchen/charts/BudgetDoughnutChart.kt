@@ -56,7 +56,10 @@ class BudgetDoughnutChart : AbstractDemoChart() {
         renderer.isApplyBackgroundColor = true
         renderer.labelsColor = ColorUtil.GRAY
         initRenderer(renderer)
-        val chart = DoughnutChart(buildMultipleCategoryDataset("Project budget", titles, values), renderer)
-        return newChart(chart)
+        val dataset = buildMultipleCategoryDataset("Project budget", titles, values)
+        val chart = DoughnutChart(dataset, renderer)
+        val component = newChart(chart)
+        (component as CachedChartComponent).watch(dataset)
+        return component
     }
 }
\ No newline at end of file
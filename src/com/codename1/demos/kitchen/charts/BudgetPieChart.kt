@@ -26,7 +26,10 @@ import com.codename1.charts.ChartComponent
 import com.codename1.charts.models.SeriesSelection
 import com.codename1.charts.util.ColorUtil
 import com.codename1.charts.views.PieChart
+import com.codename1.demos.kitchen.AnimationScheduler
 import com.codename1.ui.Component
+import com.codename1.ui.Graphics
+import com.codename1.ui.animations.Animation
 import com.codename1.ui.geom.Rectangle
 
 /**
@@ -70,8 +73,32 @@ class BudgetPieChart : AbstractDemoChart() {
         initRenderer(renderer)
         val seriesSet = buildCategoryDataset("Project budget", values)
         val chart = PieChart(seriesSet, renderer)
-        val comp: ChartComponent = object : ChartComponent(chart) {
+        val comp: ChartComponent = object : CachedChartComponent(chart) {
             private var inDrag = false
+
+            // The zoom animation transforms the chart without changing its data. Its frames are painted directly
+            // and the chart is rendered into the cache once, when the zoom ends.
+            private var zoomEnd = 0L
+            private val zoomWatch = object : Animation {
+                override fun animate(): Boolean {
+                    if (System.currentTimeMillis() >= zoomEnd) {
+                        AnimationScheduler.unregister(this)
+                        isAnimating = false
+                        repaint()
+                    }
+                    return false
+                }
+
+                override fun paint(g: Graphics) {
+                }
+            }
+
+            override fun deinitialize() {
+                AnimationScheduler.unregister(zoomWatch)
+                isAnimating = false
+                super.deinitialize()
+            }
+
             override fun pointerPressed(x: Int, y: Int) {
                 inDrag = false
                 super.pointerPressed(x, y) //To change body of generated methods, choose Tools | Templates.
@@ -100,13 +127,27 @@ class BudgetPieChart : AbstractDemoChart() {
                         bounds.width + 80,
                         bounds.height + 80
                 )
-                this.zoomToShapeInChartCoords(bounds, 500)
+                val form = componentForm
+                if (form != null) {
+                    zoomEnd = System.currentTimeMillis() + ZOOM_DURATION + ZOOM_SETTLE
+                    isAnimating = true
+                    AnimationScheduler.register(form, zoomWatch)
+                }
+                this.zoomToShapeInChartCoords(bounds, ZOOM_DURATION)
             }
         }
+        (comp as CachedChartComponent).watch(seriesSet)
         comp.isZoomEnabled = true
         comp.isPanEnabled = true
         comp.style.bgColor = 0xff0000
         comp.style.setBgTransparency(255)
         return comp
     }
-}
\ No newline at end of file
+
+    companion object {
+        private const val ZOOM_DURATION = 500
+
+        // Leaves time for the repaint of the last zoom frame.
+        private const val ZOOM_SETTLE = 200
+    }
+}
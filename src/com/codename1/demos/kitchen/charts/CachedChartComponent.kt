@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.charts.ChartComponent
+import com.codename1.charts.renderers.DialRenderer
+import com.codename1.charts.views.AbstractChart
+import com.codename1.charts.views.RoundChart
+import com.codename1.charts.views.XYChart
+import com.codename1.demos.kitchen.charts.models.Versioned
+import com.codename1.ui.Graphics
+import com.codename1.ui.Image
+import java.util.*
+
+/**
+ * A chart component that renders its chart into an offscreen image and blits that image as long as nothing
+ * that affects the chart changed. The size, the main renderer settings and, for XY charts, the visible range of
+ * every scale (which is how pan and zoom are applied) are checked on each paint, as is the version of every
+ * [Versioned] series so points edited in place are caught too. Other XY series are checked by size and bounds.
+ * Pie and dial charts check the version of the series passed to [watch]. Any other change must be reported
+ * with [invalidate].
+ *
+ * The chart is painted directly while it's being dragged or pinched, while [isAnimating] is set and on platforms
+ * that can't draw shapes on mutable images.
+ */
+open class CachedChartComponent(private val cachedChart: AbstractChart?) : ChartComponent(cachedChart) {
+    private var cache: Image? = null
+    private var valid = false
+    private var interacting = false
+    private var signature = DoubleArray(16)
+    private var signatureLength = 0
+    private var previous = DoubleArray(16)
+    private var previousLength = -1
+
+    /**
+     * Shows the point closest to the finger while the chart is touched, null to disable.
+     */
+    var crosshair: ChartCrosshair? = null
+
+    /**
+     * False to always paint the chart directly, e.g. when the component is painted only once into an export image.
+     */
+    var isCaching = true
+
+    /**
+     * True while the chart is animated in a way the cache can't see, e.g. a zoom transition. Frames are painted
+     * directly and the chart is rendered into the cache again once this is cleared.
+     */
+    var isAnimating = false
+        set(value) {
+            field = value
+            valid = false
+        }
+
+    private val watchedSeries = ArrayList<Versioned>()
+
+    /**
+     * Renders the chart again when the series changes.
+     */
+    fun watch(series: Versioned) {
+        watchedSeries.add(series)
+    }
+
+    /**
+     * Discards the cached image, the chart is rendered again on the next paint.
+     */
+    fun invalidate() {
+        valid = false
+    }
+
+    override fun paint(g: Graphics) {
+        val w = width
+        val h = height
+        val changed = updateSignature(w, h)
+        if (!isCaching || interacting || isAnimating || w <= 0 || h <= 0) {
+            valid = false
+            super.paint(g)
+            crosshair?.paint(g, x, y, w, h)
+            return
+        }
+        if (valid && !changed) {
+            g.drawImage(cache, x, y)
+            crosshair?.paint(g, x, y, w, h)
+            return
+        }
+        var image = cache
+        val reused = image != null && image.width == w && image.height == h
+        if (!reused) {
+            image = Image.createImage(w, h, 0)
+        }
+        val ig = image!!.graphics
+        if (!ig.isShapeSupported) {
+            cache = null
+            super.paint(g)
+            crosshair?.paint(g, x, y, w, h)
+            return
+        }
+        if (reused && !hasOpaqueBackground()) {
+            // The chart doesn't cover the whole image, clear what the previous render left.
+            ig.clearRect(0, 0, w, h)
+        }
+
+        // The chart draws itself at the component position relative to the parent.
+        ig.translate(-x, -y)
+        super.paint(ig)
+        cache = image
+        valid = true
+        g.drawImage(image, x, y)
+        crosshair?.paint(g, x, y, w, h)
+    }
+
+    // Single touch and mouse events arrive through the int overloads, multi touch through the array ones.
+    override fun pointerPressed(x: Int, y: Int) {
+        interacting = true
+        super.pointerPressed(x, y)
+        trackCrosshair(x, y)
+    }
+
+    override fun pointerPressed(x: IntArray, y: IntArray) {
+        interacting = true
+        super.pointerPressed(x, y)
+        trackCrosshair(x[0], y[0])
+    }
+
+    override fun pointerDragged(x: Int, y: Int) {
+        interacting = true
+        super.pointerDragged(x, y)
+        trackCrosshair(x, y)
+    }
+
+    override fun pointerDragged(x: IntArray, y: IntArray) {
+        interacting = true
+        super.pointerDragged(x, y)
+        trackCrosshair(x[0], y[0])
+    }
+
+    override fun pointerReleased(x: Int, y: Int) {
+        released()
+        super.pointerReleased(x, y)
+    }
+
+    override fun pointerReleased(x: IntArray, y: IntArray) {
+        released()
+        super.pointerReleased(x, y)
+    }
+
+    private fun released() {
+        interacting = false
+        crosshair?.hide()
+        repaint()
+    }
+
+    private fun trackCrosshair(x: Int, y: Int) {
+        val c = crosshair ?: return
+
+        // Pointer events are absolute, the chart is drawn relative to the parent.
+        if (c.track(x - absoluteX + this.x, y - absoluteY + this.y)) {
+            repaint()
+        }
+    }
+
+    override fun deinitialize() {
+        cache = null
+        valid = false
+        super.deinitialize()
+    }
+
+    private fun hasOpaqueBackground(): Boolean {
+        return cachedChart is XYChart && cachedChart.renderer.isApplyBackgroundColor
+    }
+
+    /**
+     * Records the state the cached image depends on.
+     *
+     * @return true if it differs from the state recorded by the previous call
+     */
+    private fun updateSignature(w: Int, h: Int): Boolean {
+        signatureLength = 0
+        put(w.toDouble())
+        put(h.toDouble())
+        val settings = when (cachedChart) {
+            is XYChart -> cachedChart.renderer
+            is RoundChart -> cachedChart.renderer
+            else -> null
+        }
+        if (settings != null) {
+            put(settings.scale.toDouble())
+            put(settings.startAngle.toDouble())
+            put(if (settings.isShowLabels) 1.0 else 0.0)
+            put(if (settings.isDisplayValues) 1.0 else 0.0)
+            put(settings.labelsTextSize.toDouble())
+            put(settings.labelsColor.toDouble())
+            put(settings.backgroundColor.toDouble())
+            for (i in 0 until settings.seriesRendererCount) {
+                val r = settings.getSeriesRendererAt(i)
+                put(r.color.toDouble())
+                put(if (r.isHighlighted) 1.0 else 0.0)
+            }
+            if (settings is DialRenderer) {
+                put(settings.minValue)
+                put(settings.maxValue)
+            }
+        }
+        for (series in watchedSeries) {
+            put(series.version.toDouble())
+        }
+        if (cachedChart is XYChart) {
+            val renderer = cachedChart.renderer
+            for (scale in 0 until renderer.scalesCount) {
+                put(renderer.getXAxisMin(scale))
+                put(renderer.getXAxisMax(scale))
+                put(renderer.getYAxisMin(scale))
+                put(renderer.getYAxisMax(scale))
+            }
+            val dataset = cachedChart.dataset
+            for (i in 0 until dataset.seriesCount) {
+                val series = dataset.getSeriesAt(i)
+                put(series.itemCount.toDouble())
+                if (series is Versioned) {
+                    put(series.version.toDouble())
+                } else {
+                    put(series.minX)
+                    put(series.maxX)
+                    put(series.minY)
+                    put(series.maxY)
+                }
+            }
+        }
+        var changed = signatureLength != previousLength
+        for (i in 0 until signatureLength) {
+            if (changed) {
+                break
+            }
+            changed = signature[i] != previous[i]
+        }
+        if (previous.size < signature.size) {
+            previous = DoubleArray(signature.size)
+        }
+        System.arraycopy(signature, 0, previous, 0, signatureLength)
+        previousLength = signatureLength
+        return changed
+    }
+
+    private fun put(value: Double) {
+        if (signatureLength == signature.size) {
+            signature = signature.copyOf(signatureLength * 2)
+        }
+        signature[signatureLength++] = value
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.charts.compat.Canvas
+import com.codename1.charts.compat.Paint
+import com.codename1.charts.models.XYMultipleSeriesDataset
+import com.codename1.charts.models.XYSeries
+import com.codename1.charts.renderers.XYMultipleSeriesRenderer
+import com.codename1.charts.renderers.XYSeriesRenderer
+import com.codename1.charts.views.CubicLineChart
+import com.codename1.demos.kitchen.charts.models.SeriesStamp
+import com.codename1.ui.geom.GeneralPath
+import java.util.*
+
+/**
+ * A cubic line chart that keeps the Bezier control points of every series instead of recomputing them on each
+ * paint. The control points are linear combinations of the series points, so they are computed once in chart
+ * coordinates and only mapped to the screen when painting, which is the same mapping the points go through for
+ * any pan or zoom. They are recomputed when the series changes.
+ *
+ * The curve is the same as the one drawn by [CubicLineChart].
+ */
+class CachedCubicLineChart(dataset: XYMultipleSeriesDataset?, renderer: XYMultipleSeriesRenderer?,
+                           private val smoothness: Float) : CubicLineChart(dataset, renderer, smoothness) {
+    private val splines = HashMap<XYSeries, Spline>()
+    private val path = GeneralPath()
+    private var drawingSeries = -1
+    private var drawingStart = 0
+
+    override fun drawSeries(canvas: Canvas, paint: Paint, points: List<Float>, seriesRenderer: XYSeriesRenderer,
+                            yAxisValue: Float, seriesIndex: Int, startIndex: Int) {
+        drawingSeries = seriesIndex
+        drawingStart = startIndex
+        try {
+            super.drawSeries(canvas, paint, points, seriesRenderer, yAxisValue, seriesIndex, startIndex)
+        } finally {
+            drawingSeries = -1
+        }
+    }
+
+    override fun drawPath(canvas: Canvas, points: List<Float>, paint: Paint, circular: Boolean) {
+        val count = points.size / 2
+        if (drawingSeries < 0 || circular || count < 3) {
+            super.drawPath(canvas, points, paint, circular)
+            return
+        }
+        val series = dataset.getSeriesAt(drawingSeries)
+        val spline = splines.getOrPut(series) { Spline() }
+        spline.update(series)
+
+        // Chart to screen mapping, it's linear on each axis.
+        val scale = series.scaleNumber
+        val origin = toScreenPoint(doubleArrayOf(0.0, 0.0), scale)
+        val unit = toScreenPoint(doubleArrayOf(1.0, 1.0), scale)
+        val ax = unit[0] - origin[0]
+        val ay = unit[1] - origin[1]
+        val start = drawingStart
+        if (start < 0 || start + count > spline.size ||
+                Math.abs(origin[0] + ax * series.getX(start) - points[0]) > 1 ||
+                Math.abs(origin[1] + ay * series.getY(start) - points[1]) > 1) {
+            // The points don't map to the series one to one, draw them the regular way.
+            super.drawPath(canvas, points, paint, circular)
+            return
+        }
+        val first = smoothness
+        val second = 1 - smoothness
+        path.reset()
+        path.moveTo(points[0], points[1])
+        for (j in 0 until count) {
+            val next = if (j + 1 < count) j + 1 else j
+            val nextX = points[next * 2]
+            val nextY = points[next * 2 + 1]
+            if (j + 2 < count) {
+                val g = start + j
+                path.curveTo((origin[0] + ax * spline.c1x[g]).toFloat(), (origin[1] + ay * spline.c1y[g]).toFloat(),
+                        nextX, nextY,
+                        (origin[0] + ax * spline.endX[g]).toFloat(), (origin[1] + ay * spline.endY[g]).toFloat())
+            } else {
+                // The segments at the end of a run clamp to the last point.
+                val x = points[j * 2]
+                val y = points[j * 2 + 1]
+                val nextNext = if (j + 2 < count) j + 2 else next
+                path.curveTo(x + (nextX - x) * second, y + (nextY - y) * second, nextX, nextY,
+                        nextX + (points[nextNext * 2] - nextX) * first, nextY + (points[nextNext * 2 + 1] - nextY) * first)
+            }
+        }
+        canvas.drawPath(path, paint)
+    }
+
+    /**
+     * The control points of a series in chart coordinates, `c1` is the first control point of the segment
+     * starting at each point and `end` its end point.
+     */
+    private inner class Spline {
+        var size = -1
+        var c1x = DoubleArray(0)
+        var c1y = DoubleArray(0)
+        var endX = DoubleArray(0)
+        var endY = DoubleArray(0)
+        private val stamp = SeriesStamp()
+
+        fun update(series: XYSeries) {
+            if (!stamp.update(series)) {
+                return
+            }
+            val n = series.itemCount
+            size = n
+            if (c1x.size < n) {
+                c1x = DoubleArray(n)
+                c1y = DoubleArray(n)
+                endX = DoubleArray(n)
+                endY = DoubleArray(n)
+            }
+            val first = smoothness
+            val second = 1 - smoothness
+            for (g in 0 until n - 2) {
+                val x = series.getX(g)
+                val y = series.getY(g)
+                val nextX = series.getX(g + 1)
+                val nextY = series.getY(g + 1)
+                c1x[g] = x + (nextX - x) * second
+                c1y[g] = y + (nextY - y) * second
+                endX[g] = nextX + (series.getX(g + 2) - nextX) * first
+                endY[g] = nextY + (series.getY(g + 2) - nextY) * first
+            }
+        }
+    }
+}
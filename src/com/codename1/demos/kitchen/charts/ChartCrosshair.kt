@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.charts.views.TimeChart
+import com.codename1.charts.views.XYChart
+import com.codename1.demos.kitchen.charts.models.PointIndex
+import com.codename1.l10n.SimpleDateFormat
+import com.codename1.ui.CN
+import com.codename1.ui.Font
+import com.codename1.ui.Graphics
+import java.util.*
+
+/**
+ * Highlights the point of an XY chart closest to the finger with a crosshair and a tooltip showing its series
+ * and values. Points are looked up in a [PointIndex] so tracking stays cheap on large datasets.
+ */
+class ChartCrosshair(private val chart: XYChart) {
+    private val index = PointIndex()
+    private val font = Font.createTrueTypeFont("native:MainRegular", "native:MainRegular")
+            .derive(CN.convertToPixels(2.5f).toFloat(), Font.STYLE_PLAIN)
+    private val origin = DoubleArray(2)
+    private val unit = doubleArrayOf(1.0, 1.0)
+    private var seriesIndex = -1
+    private var pointIndex = -1
+    private var pointX = 0
+    private var pointY = 0
+
+    /**
+     * True while a point is highlighted.
+     */
+    val isVisible: Boolean
+        get() = pointIndex >= 0
+
+    /**
+     * Highlights the point closest to the given position.
+     *
+     * @param x the x position in the coordinates the chart is drawn in
+     * @param y the y position in the coordinates the chart is drawn in
+     * @return true if the highlighted point changed
+     */
+    fun track(x: Int, y: Int): Boolean {
+        val oldSeries = seriesIndex
+        val oldPoint = pointIndex
+        val dataset = chart.dataset
+        var best = Double.MAX_VALUE
+        seriesIndex = -1
+        pointIndex = -1
+        for (i in 0 until dataset.seriesCount) {
+            val series = dataset.getSeriesAt(i)
+            val scale = series.scaleNumber
+            val real = chart.toRealPoint(x.toFloat(), y.toFloat(), scale)
+            val zero = chart.toScreenPoint(origin, scale)
+            val one = chart.toScreenPoint(unit, scale)
+            val scaleX = one[0] - zero[0]
+            val scaleY = one[1] - zero[1]
+            val p = index.nearest(series, real[0], real[1], scaleX, scaleY, MAX_DISTANCE_MM * CN.convertToPixels(1f))
+            if (p >= 0) {
+                val dx = (series.getX(p) - real[0]) * scaleX
+                val dy = (series.getY(p) - real[1]) * scaleY
+                val distance = dx * dx + dy * dy
+                if (distance < best) {
+                    best = distance
+                    seriesIndex = i
+                    pointIndex = p
+                    val screen = chart.toScreenPoint(doubleArrayOf(series.getX(p), series.getY(p)), scale)
+                    pointX = screen[0].toInt()
+                    pointY = screen[1].toInt()
+                }
+            }
+        }
+        return oldSeries != seriesIndex || oldPoint != pointIndex
+    }
+
+    /**
+     * Hides the crosshair.
+     */
+    fun hide() {
+        seriesIndex = -1
+        pointIndex = -1
+    }
+
+    /**
+     * Paints the crosshair within the given chart area.
+     */
+    fun paint(g: Graphics, x: Int, y: Int, width: Int, height: Int) {
+        if (pointIndex < 0) {
+            return
+        }
+        val series = chart.dataset.getSeriesAt(seriesIndex)
+        val xValue = series.getX(pointIndex)
+        val xText = if (chart is TimeChart) TIME_FORMAT.format(Date(xValue.toLong())) else format(xValue)
+        val text = series.title + ": " + xText + ", " + format(series.getY(pointIndex))
+        val color = g.color
+        val alpha = g.alpha
+        g.color = 0x555555
+        g.drawLine(x, pointY, x + width, pointY)
+        g.drawLine(pointX, y, pointX, y + height)
+        val pad = CN.convertToPixels(1f)
+        val w = font.stringWidth(text) + pad * 2
+        val h = font.height + pad * 2
+        val tipX = Math.max(x, Math.min(pointX + pad, x + width - w))
+        val tipY = Math.max(y, pointY - h - pad)
+        g.alpha = 220
+        g.fillRoundRect(tipX, tipY, w, h, pad, pad)
+        g.alpha = 255
+        g.color = 0xffffff
+        g.font = font
+        g.drawString(text, tipX + pad, tipY + pad)
+        g.color = color
+        g.alpha = alpha
+    }
+
+    private fun format(value: Double): String {
+        return (Math.round(value * 100) / 100.0).toString()
+    }
+
+    companion object {
+        // Points further than this from the finger aren't highlighted.
+        private const val MAX_DISTANCE_MM = 5
+        private val TIME_FORMAT = SimpleDateFormat("HH:mm")
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.io.FileSystemStorage
+import com.codename1.io.Util
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.Image
+import com.codename1.ui.util.ImageIO
+import java.io.IOException
+import java.util.*
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Renders charts to PNG or JPEG files without showing them, e.g. to produce daily report snapshots of the demo
+ * charts. The charts are rendered off the EDT by a pool of worker threads: every chart is painted into a mutable
+ * image of the requested size and encoded straight into a [FileSystemStorage] output stream, so no more than one
+ * image per worker is in memory however many charts are exported.
+ *
+ * The components are created by the worker threads as well, a chart definition is any function returning the
+ * chart component, e.g. `{ SalesBarChart().execute() }`.
+ *
+ * @param workers the maximal number of charts rendered at the same time
+ */
+class ChartExporter(private val workers: Int = 2) {
+    /**
+     * The image format, [ImageIO.FORMAT_PNG] or [ImageIO.FORMAT_JPEG].
+     */
+    var format = ImageIO.FORMAT_PNG
+
+    /**
+     * The encoding quality between 0 and 1, only used by lossy formats.
+     */
+    var quality = 0.9f
+
+    /**
+     * The RGB color JPEG images are filled with before the chart is painted, PNG images are transparent.
+     */
+    var background = 0xffffff
+
+    /**
+     * Invoked on the EDT after a job ended, with the error that made it fail if any. Jobs skipped because the
+     * export was cancelled end with a [CancelledException].
+     */
+    var exported: ((Job, Throwable?) -> Unit)? = null
+
+    /**
+     * Invoked on the EDT with the number of exported and failed jobs once the queue is empty, cancelled jobs
+     * that were already handed to a worker count as failed.
+     */
+    var finished: ((Int, Int) -> Unit)? = null
+
+    private val lock = Any()
+    private val queue = ArrayList<Job>()
+    private var running = 0
+    private var succeeded = 0
+    private var failed = 0
+
+    @Volatile
+    private var cancelled = false
+
+    /**
+     * A chart to export.
+     *
+     * @param chart creates the chart component, invoked on a worker thread
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param path the [FileSystemStorage] path the image is written to
+     */
+    class Job(val chart: () -> Component, val width: Int, val height: Int, val path: String)
+
+    /**
+     * Reported for a job that was skipped because [cancel] was called after a worker picked it up.
+     */
+    class CancelledException : Exception("The export was cancelled")
+
+    /**
+     * Queues a chart and starts a worker for it unless all of them are busy.
+     *
+     * @param chart creates the chart component, invoked on a worker thread
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param path the [FileSystemStorage] path the image is written to
+     */
+    fun export(chart: () -> Component, width: Int, height: Int, path: String) {
+        exportAll(listOf(Job(chart, width, height, path)))
+    }
+
+    /**
+     * Queues a batch of charts and starts as many workers as needed.
+     *
+     * @param jobs the charts to export
+     */
+    fun exportAll(jobs: List<Job>) {
+        var start: Int
+        synchronized(lock) {
+            cancelled = false
+            queue.addAll(jobs)
+            start = min(workers, queue.size) - running
+            running += max(start, 0)
+        }
+        for (i in 0 until start) {
+            Thread({ work() }, "ChartExporter").start()
+        }
+    }
+
+    /**
+     * Drops the queued jobs, the charts that are being rendered are still written.
+     */
+    fun cancel() {
+        synchronized(lock) {
+            cancelled = true
+            queue.clear()
+        }
+    }
+
+    private fun work() {
+        while (true) {
+            val job: Job
+            synchronized(lock) {
+                val next = if (queue.isEmpty()) null else queue.removeAt(0)
+                if (next == null) {
+                    running--
+                    if (running == 0) {
+                        val ok = succeeded
+                        val ko = failed
+                        succeeded = 0
+                        failed = 0
+                        CN.callSerially { finished?.invoke(ok, ko) }
+                    }
+                    return
+                }
+                job = next
+            }
+            var error: Throwable? = null
+            try {
+                if (cancelled) {
+                    throw CancelledException()
+                }
+                render(job)
+            } catch (t: Throwable) {
+                error = t
+            }
+            synchronized(lock) {
+                if (error == null) {
+                    succeeded++
+                } else {
+                    failed++
+                }
+            }
+            val failure = error
+            CN.callSerially { exported?.invoke(job, failure) }
+        }
+    }
+
+    private fun render(job: Job) {
+        val io = ImageIO.getImageIO()
+        if (io == null || !io.isFormatSupported(format)) {
+            throw IOException("Saving $format images isn't supported on this platform")
+        }
+        val component = job.chart()
+        if (component is CachedChartComponent) {
+            // The chart is painted once, caching it would only add a second image.
+            component.isCaching = false
+        }
+        component.x = 0
+        component.y = 0
+        component.width = job.width
+        component.height = job.height
+        val opaque = format == ImageIO.FORMAT_JPEG
+        val image = Image.createImage(job.width, job.height, if (opaque) background or -0x1000000 else 0)
+        try {
+            component.paint(image.graphics)
+            val out = FileSystemStorage.getInstance().openOutputStream(job.path)
+            try {
+                io.save(image, out, format, quality)
+            } finally {
+                Util.cleanup(out)
+            }
+        } finally {
+            image.dispose()
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.charts.ChartComponent
+import com.codename1.charts.models.CategorySeries
+import com.codename1.charts.models.XYSeries
+import com.codename1.charts.renderers.XYMultipleSeriesRenderer
+import com.codename1.charts.util.MathHelper
+import com.codename1.demos.kitchen.AnimationScheduler
+import com.codename1.demos.kitchen.charts.models.setPoint
+import com.codename1.ui.Graphics
+import com.codename1.ui.animations.Animation
+
+/**
+ * Tweens a chart from its previous state to its current one: the y values of an XY series, the visible range
+ * of an XY renderer and the values of a category series (and so the angles of a pie). Call the `capture`
+ * methods before changing the data, change it, then call [start].
+ *
+ * The interpolation buffers are kept between transitions, a frame writes the interpolated values into the
+ * series and the renderer without allocating anything.
+ *
+ * @param component the component showing the chart
+ */
+class ChartTransition(private val component: ChartComponent) : Animation {
+    /**
+     * The transition duration in milliseconds.
+     */
+    var duration = 300
+
+    /**
+     * True for a constant speed, otherwise the transition eases in and out.
+     */
+    var isLinear = false
+
+    /**
+     * Repaints the chart after every frame, repaints the whole component if null.
+     */
+    var repaint: (() -> Unit)? = null
+
+    private var xySeries: XYSeries? = null
+    private var fromX = DoubleArray(0)
+    private var fromY = DoubleArray(0)
+    private var toX = DoubleArray(0)
+    private var toY = DoubleArray(0)
+    private var xyCount = 0
+
+    private var renderer: XYMultipleSeriesRenderer? = null
+    private val fromRange = DoubleArray(4)
+    private val toRange = DoubleArray(4)
+
+    private var categories: CategorySeries? = null
+    private var fromValues = DoubleArray(0)
+    private var toValues = DoubleArray(0)
+    private var categoryCount = 0
+
+    private var startTime = 0L
+    private var running = false
+
+    // Set by pause, the time already elapsed when the transition was paused.
+    private var paused = false
+    private var pausedElapsed = 0L
+
+    /**
+     * True while a transition is running.
+     */
+    val isRunning: Boolean
+        get() = running
+
+    /**
+     * Records the current points of an XY series, a running transition is finished first.
+     */
+    fun captureXY(series: XYSeries) {
+        finish()
+        xySeries = series
+        xyCount = series.itemCount
+        if (fromX.size < xyCount) {
+            fromX = DoubleArray(xyCount)
+            fromY = DoubleArray(xyCount)
+            toX = DoubleArray(xyCount)
+            toY = DoubleArray(xyCount)
+        }
+        for (i in 0 until xyCount) {
+            fromX[i] = series.getX(i)
+            fromY[i] = series.getY(i)
+        }
+    }
+
+    /**
+     * Records the current visible range of the first scale of a renderer.
+     */
+    fun captureRange(renderer: XYMultipleSeriesRenderer) {
+        finish()
+        this.renderer = renderer
+        readRange(renderer, fromRange)
+    }
+
+    /**
+     * Records the current values of a category series.
+     */
+    fun captureCategories(series: CategorySeries) {
+        finish()
+        categories = series
+        categoryCount = series.itemCount
+        if (fromValues.size < categoryCount) {
+            fromValues = DoubleArray(categoryCount)
+            toValues = DoubleArray(categoryCount)
+        }
+        for (i in 0 until categoryCount) {
+            fromValues[i] = series.getValue(i)
+        }
+    }
+
+    /**
+     * Starts tweening from the captured state to the current one. Series whose size changed since they were
+     * captured are shown in their new state right away.
+     */
+    fun start() {
+        val xy = xySeries
+        if (xy != null) {
+            if (xy.itemCount == xyCount) {
+                for (i in 0 until xyCount) {
+                    toX[i] = xy.getX(i)
+                    toY[i] = xy.getY(i)
+                }
+            } else {
+                xySeries = null
+            }
+        }
+        val r = renderer
+        if (r != null) {
+            readRange(r, toRange)
+        }
+        val c = categories
+        if (c != null) {
+            if (c.itemCount == categoryCount) {
+                for (i in 0 until categoryCount) {
+                    toValues[i] = c.getValue(i)
+                }
+            } else {
+                categories = null
+            }
+        }
+        if (xySeries == null && renderer == null && categories == null) {
+            return
+        }
+        val form = component.componentForm
+        if (form == null) {
+            // Not showing, nothing to animate.
+            xySeries = null
+            renderer = null
+            categories = null
+            return
+        }
+        startTime = System.currentTimeMillis()
+        apply(0.0)
+        running = true
+        AnimationScheduler.register(form, this)
+    }
+
+    /**
+     * Stops the running transition where it is, [resume] continues it from the same point.
+     */
+    fun pause() {
+        if (running) {
+            pausedElapsed = System.currentTimeMillis() - startTime
+            running = false
+            paused = true
+            AnimationScheduler.unregister(this)
+        }
+    }
+
+    /**
+     * Continues a transition stopped by [pause]. Does nothing while the component isn't showing.
+     */
+    fun resume() {
+        if (!paused) {
+            return
+        }
+        val form = component.componentForm ?: return
+        paused = false
+        startTime = System.currentTimeMillis() - pausedElapsed
+        running = true
+        AnimationScheduler.register(form, this)
+    }
+
+    /**
+     * Jumps to the end of the running or paused transition.
+     */
+    fun finish() {
+        if (running || paused) {
+            apply(1.0)
+            if (running) {
+                AnimationScheduler.unregister(this)
+            }
+            running = false
+            paused = false
+            xySeries = null
+            renderer = null
+            categories = null
+        }
+    }
+
+    override fun animate(): Boolean {
+        if (!running) {
+            return false
+        }
+        val elapsed = System.currentTimeMillis() - startTime
+        if (elapsed >= duration) {
+            finish()
+        } else {
+            var t = elapsed.toDouble() / duration
+            if (!isLinear) {
+                t = if (t < 0.5) 4 * t * t * t else 1 - (-2 * t + 2) * (-2 * t + 2) * (-2 * t + 2) / 2
+            }
+            apply(t)
+        }
+        val r = repaint
+        if (r != null) {
+            r()
+        } else {
+            component.repaint()
+        }
+        return false
+    }
+
+    override fun paint(g: Graphics) {
+    }
+
+    private fun apply(t: Double) {
+        val xy = xySeries
+        if (xy != null) {
+            for (i in 0 until xyCount) {
+                val y = if (fromY[i] == MathHelper.NULL_VALUE || toY[i] == MathHelper.NULL_VALUE) {
+                    toY[i]
+                } else {
+                    fromY[i] + (toY[i] - fromY[i]) * t
+                }
+                if (xy.getX(i) != toX[i] || xy.getY(i) != y) {
+                    xy.setPoint(i, toX[i], y)
+                }
+            }
+        }
+        val r = renderer
+        if (r != null) {
+            r.xAxisMin = fromRange[0] + (toRange[0] - fromRange[0]) * t
+            r.xAxisMax = fromRange[1] + (toRange[1] - fromRange[1]) * t
+            r.yAxisMin = fromRange[2] + (toRange[2] - fromRange[2]) * t
+            r.yAxisMax = fromRange[3] + (toRange[3] - fromRange[3]) * t
+        }
+        val c = categories
+        if (c != null) {
+            for (i in 0 until categoryCount) {
+                c.set(i, c.getCategory(i), fromValues[i] + (toValues[i] - fromValues[i]) * t)
+            }
+        }
+    }
+
+    private fun readRange(renderer: XYMultipleSeriesRenderer, range: DoubleArray) {
+        range[0] = renderer.xAxisMin
+        range[1] = renderer.xAxisMax
+        range[2] = renderer.yAxisMin
+        range[3] = renderer.yAxisMax
+    }
+}
@@ -33,6 +33,11 @@ import com.codename1.charts.renderers.XYSeriesRenderer
 import com.codename1.charts.views.LineChart
 import com.codename1.charts.views.PieChart
 import com.codename1.charts.views.PointStyle
+import com.codename1.charts.views.XYChart
+import com.codename1.demos.kitchen.charts.models.ColumnarXYSeries
+import com.codename1.demos.kitchen.charts.models.VersionedCategorySeries
+import com.codename1.demos.kitchen.charts.models.XYExtent
+import com.codename1.demos.kitchen.charts.models.setPoint
 import com.codename1.l10n.L10NManager
 import com.codename1.ui.*
 import com.codename1.ui.events.ActionEvent
@@ -42,12 +47,14 @@ import com.codename1.ui.table.DefaultTableModel
 import com.codename1.ui.table.Table
 import com.codename1.ui.table.TableLayout
 import com.codename1.ui.table.TableModel
-import java.lang.Double.MAX_VALUE
-import java.lang.Double.MIN_VALUE
-import kotlin.math.max
-import kotlin.math.min
 
 object DemoCharts {
+    // Tables with more rows than this only create components for the visible rows.
+    private const val VIRTUAL_TABLE_ROWS = 200
+
+    // Input of toScreenPoint while a row transition repaints, only used on the EDT.
+    private val screenPoint = DoubleArray(2)
+
     fun createCategoriesContainer(): Container {
         val dataCells = createDefaultCategoryCells()
         val model: TableModel = object : DefaultTableModel(arrayOf("Category", "Sales"), dataCells, true) {
@@ -62,9 +69,9 @@ object DemoCharts {
             }
         }
         val dataTable = createTable(model)
-        val series = CategorySeries("Sales")
+        val series = VersionedCategorySeries("Sales")
         val chart = PieChart(series, createPieChartRenderer())
-        val chartComponent: ChartComponent = object : ChartComponent(chart) {
+        val chartComponent: CachedChartComponent = object : CachedChartComponent(chart) {
             // Make an anonymous claas that override calcPreferredSize to fit exactly a half of the screen.
             override fun calcPreferredSize(): Dimension {
                 val width = Display.getInstance().displayWidth
@@ -73,7 +80,22 @@ object DemoCharts {
             }
         }
         updatePieSeries(series, model)
-        model.addDataChangeListener { rows: Int, columns: Int -> updatePieSeries(series, model) }
+        chartComponent.watch(series)
+        val transition = ChartTransition(chartComponent)
+        model.addDataChangeListener { row: Int, column: Int ->
+            if (row >= 0 && row < series.itemCount && model.rowCount == series.itemCount) {
+                transition.captureCategories(series)
+                updatePieRow(series, model, row)
+                transition.start()
+            } else {
+                transition.finish()
+                if (!updatePieSeries(series, model)) {
+                    return@addDataChangeListener
+                }
+            }
+            // Every slice angle depends on the total, so the whole pie changes.
+            chartComponent.repaint()
+        }
         return BorderLayout.north(chartComponent).add(BorderLayout.CENTER, dataTable)
     }
 
@@ -91,11 +113,12 @@ object DemoCharts {
             }
         }
         val dataTable = createTable(model)
-        val annualSeries = XYSeries("Sales")
-        updateAnnualSeries(annualSeries, model)
+        val annualSeries = ColumnarXYSeries("Sales")
+        val extent = XYExtent(model.rowCount)
+        updateAnnualSeries(annualSeries, extent, model)
         val series = XYMultipleSeriesDataset()
         series.addSeries(annualSeries)
-        val renderer = createChartMultiRenderer(model)
+        val renderer = createChartMultiRenderer(model, extent)
         val chart = LineChart(series, renderer)
         val chartComponent: ChartComponent = object : ChartComponent(chart) {
             // Make an anonymous claas that override calcPreferredSize to fit exactly a half of the screen.
@@ -105,11 +128,51 @@ object DemoCharts {
                 return Dimension(width, height / 2)
             }
         }
+        val transition = ChartTransition(chartComponent)
         model.addDataChangeListener { row: Int, column: Int ->
-            updateAnnualSeries(annualSeries, model)
-            updateRendererMinMax(model, chart.renderer)
+            transition.finish()
+
+            // The table isn't sorted by year while the series is, the extent tracks the rows in table order and
+            // gives the year the row had before the edit, which is the key of its point in the series.
+            val index = if (row >= 0 && row < extent.size && model.rowCount == annualSeries.itemCount) {
+                annualIndexOf(annualSeries, extent.x(row))
+            } else {
+                -1
+            }
+            if (index >= 0) {
+                val renderer = chart.renderer
+                val oldBounds = doubleArrayOf(renderer.xAxisMin, renderer.xAxisMax, renderer.yAxisMin, renderer.yAxisMax)
+                transition.captureRange(renderer)
+                if (annualX(model, row) == annualSeries.getX(index)) {
+                    transition.captureXY(annualSeries)
+                    updateAnnualRow(annualSeries, extent, model, row, index)
+                    updateRendererMinMax(extent, renderer)
+                    if (oldBounds[0] == renderer.xAxisMin && oldBounds[1] == renderer.xAxisMax &&
+                            oldBounds[2] == renderer.yAxisMin && oldBounds[3] == renderer.yAxisMax) {
+                        transition.repaint = { repaintAnnualRow(chartComponent, chart, annualSeries, index) }
+                        repaintAnnualRow(chartComponent, chart, annualSeries, index)
+                    } else {
+                        transition.repaint = null
+                        chartComponent.repaint()
+                    }
+                } else {
+                    // The point moves past its neighbours and the points in between change index, only the
+                    // range is tweened.
+                    updateAnnualRow(annualSeries, extent, model, row, index)
+                    updateRendererMinMax(extent, renderer)
+                    transition.repaint = null
+                    chartComponent.repaint()
+                }
+                transition.start()
+            } else {
+                updateAnnualSeries(annualSeries, extent, model)
+                updateRendererMinMax(extent, chart.renderer)
+                chartComponent.repaint()
+            }
+        }
+        if (dataTable is Table) {
+            dataTable.isScrollableY = true
         }
-        dataTable.isScrollableY = true
         return BorderLayout.north(chartComponent).add(BorderLayout.CENTER, dataTable)
     }
 
@@ -138,23 +201,113 @@ object DemoCharts {
         return arrayOf(arrayOf(2015, 154143.0), arrayOf(2016, 148591.0), arrayOf(2018, 125123.0), arrayOf(2017, 179525.0), arrayOf(2019, 234130.0), arrayOf(2020, 68123.0))
     }
 
-    private fun updatePieSeries(series: CategorySeries, dataModel: TableModel) {
+    /**
+     * Fills the pie series from the table, does nothing if the series already holds the table values.
+     *
+     * @return true if the series changed
+     */
+    private fun updatePieSeries(series: CategorySeries, dataModel: TableModel): Boolean {
+        if (series.itemCount == dataModel.rowCount) {
+            var same = true
+            for (i in 0 until dataModel.rowCount) {
+                if (series.getCategory(i) != dataModel.getValueAt(i, 0) || series.getValue(i) != dataModel.getValueAt(i, 1)) {
+                    same = false
+                    break
+                }
+            }
+            if (same) {
+                return false
+            }
+        }
         series.clear()
         for (i in 0 until dataModel.rowCount) {
             val category = dataModel.getValueAt(i, 0) as String
             val value = dataModel.getValueAt(i, 1) as Double
             series.add(category, value)
         }
+        return true
+    }
+
+    private fun updatePieRow(series: CategorySeries, dataModel: TableModel, row: Int) {
+        series.set(row, dataModel.getValueAt(row, 0) as String, dataModel.getValueAt(row, 1) as Double)
+    }
+
+    private fun annualX(dataTable: TableModel, row: Int): Double = (dataTable.getValueAt(row, 0) as Int).toDouble()
+
+    /**
+     * Returns the index of the point with the given year, or -1 if there is none or several since the row
+     * can't be told apart from the other points of that year.
+     */
+    private fun annualIndexOf(annualSeries: XYSeries, x: Double): Int {
+        val index = annualSeries.getIndexForKey(x)
+        if (index < 0 || index >= annualSeries.itemCount || annualSeries.getX(index) != x ||
+                (index > 0 && annualSeries.getX(index - 1) == x) ||
+                (index < annualSeries.itemCount - 1 && annualSeries.getX(index + 1) == x)) {
+            return -1
+        }
+        return index
+    }
+
+    /**
+     * Applies the given table row to the point at the given series index. The point is replaced in place when
+     * the year is unchanged, otherwise it is removed and added again at its new sorted position.
+     */
+    private fun updateAnnualRow(annualSeries: XYSeries, extent: XYExtent, dataTable: TableModel, row: Int, index: Int) {
+        val x = annualX(dataTable, row)
+        val y = dataTable.getValueAt(row, 1) as Double
+        extent.set(row, x, y)
+        if (annualSeries.getX(index) == x) {
+            annualSeries.setPoint(index, x, y)
+        } else {
+            synchronized(annualSeries) {
+                annualSeries.remove(index)
+                annualSeries.add(x, y)
+            }
+        }
     }
 
-    private fun updateAnnualSeries(annualSeries: XYSeries, dataTable: TableModel) {
+    /**
+     * Repaints the vertical strip of the chart covered by the line segments that touch the point at the given
+     * series index.
+     */
+    private fun repaintAnnualRow(chartComponent: ChartComponent, chart: XYChart, annualSeries: XYSeries, index: Int) {
+        if (chartComponent.width == 0 || index >= annualSeries.itemCount) {
+            chartComponent.repaint()
+            return
+        }
+        var minX = annualSeries.getX(index)
+        var maxX = minX
+        if (index > 0) {
+            minX = annualSeries.getX(index - 1)
+        }
+        if (index < annualSeries.itemCount - 1) {
+            maxX = annualSeries.getX(index + 1)
+        }
+        val point = screenPoint
+        point[0] = minX
+        point[1] = 0.0
+        val left = chart.toScreenPoint(point, 0)[0].toInt()
+        point[0] = maxX
+        val right = chart.toScreenPoint(point, 0)[0].toInt()
+
+        // Screen points are relative to the parent like the component bounds, pad for the line and point size.
+        val pad = CN.convertToPixels(3f)
+        val offsetX = chartComponent.absoluteX - chartComponent.x
+        chartComponent.repaint(offsetX + left - pad, chartComponent.absoluteY, right - left + pad * 2, chartComponent.height)
+    }
+
+    private fun updateAnnualSeries(annualSeries: XYSeries, extent: XYExtent, dataTable: TableModel) {
         annualSeries.clear()
+        extent.clear()
         for (i in 0 until dataTable.rowCount) {
-            annualSeries.add((dataTable.getValueAt(i, 0) as Int).toDouble(), (dataTable.getValueAt(i, 1) as Double))
+            val x = annualX(dataTable, i)
+            val y = dataTable.getValueAt(i, 1) as Double
+            annualSeries.add(x, y)
+            extent.add(x, y)
         }
     }
 
-    private fun createChartMultiRenderer(tm: TableModel): XYMultipleSeriesRenderer {
+    private fun createChartMultiRenderer(tm: TableModel, extent: XYExtent): XYMultipleSeriesRenderer {
         val renderer = XYMultipleSeriesRenderer()
         val r = XYSeriesRenderer()
         r.color = 0x2ebbae
@@ -173,30 +326,28 @@ object DemoCharts {
         renderer.xLabels = tm.rowCount
         renderer.yLabels = tm.rowCount
         renderer.marginsColor = 0x009688
-        updateRendererMinMax(tm, renderer)
+        updateRendererMinMax(extent, renderer)
         return renderer
     }
 
-    private fun updateRendererMinMax(tm: TableModel, renderer: XYMultipleSeriesRenderer) {
-        var xMin: Double = MAX_VALUE
-        var xMax: Double = MIN_VALUE
-        var yMin: Double = MAX_VALUE
-        var yMax: Double = MIN_VALUE
-        for (i in 0 until tm.rowCount) {
-            val currentX: Double = (tm.getValueAt(i, 0) as Int).toDouble()
-            val currentY = tm.getValueAt(i, 1) as Double
-            xMin = min(xMin, currentX)
-            xMax = max(xMax, currentX)
-            yMin = min(yMin, currentY)
-            yMax = max(yMax, currentY)
-        }
-        renderer.xAxisMin = xMin
-        renderer.xAxisMax = xMax
-        renderer.yAxisMin = yMin
-        renderer.yAxisMax = yMax
+    /**
+     * Applies the bounds tracked by the extent to the axes, the extent is kept up to date as rows are edited so
+     * this doesn't need to scan the table.
+     */
+    private fun updateRendererMinMax(extent: XYExtent, renderer: XYMultipleSeriesRenderer) {
+        if (extent.isEmpty) {
+            return
+        }
+        renderer.xAxisMin = extent.minX
+        renderer.xAxisMax = extent.maxX
+        renderer.yAxisMin = extent.minY
+        renderer.yAxisMax = extent.maxY
     }
 
-    private fun createTable(tm: TableModel): Table {
+    private fun createTable(tm: TableModel): Container {
+        if (tm.rowCount > VIRTUAL_TABLE_ROWS) {
+            return createVirtualTable(tm)
+        }
         return object : Table(tm) {
             override fun createCell(value: Any, row: Int, column: Int, editable: Boolean): Component {
                 val cell = super.createCell(value, row, column, editable)
@@ -233,4 +384,43 @@ object DemoCharts {
             }
         }
     }
+
+    /**
+     * Same look and editing as the table created by [createTable] but only the visible rows have components and
+     * values are formatted as rows scroll into view.
+     */
+    private fun createVirtualTable(tm: TableModel): Container {
+        val intYears = tm.getValueAt(0, 0) is Int
+        return object : VirtualTable(tm) {
+            override fun createHeaderCell(column: Int): Component {
+                return Label(tm.getColumnName(column), "SalesTableHeader")
+            }
+
+            override fun createCell(column: Int): TextField {
+                val cell = super.createCell(column)
+                if (column == 1 || intYears && column == 0) {
+                    cell.constraint = TextArea.DECIMAL
+                }
+                return cell
+            }
+
+            override fun cellEdited(cell: TextField, row: Int, column: Int) {
+                if (intYears && column == 0) {
+                    val year = cell.text.trim().toIntOrNull() ?: return
+                    tm.setValueAt(row, column, year)
+                } else {
+                    super.cellEdited(cell, row, column)
+                }
+            }
+
+            override fun bindCell(cell: TextField, value: Any?, row: Int, column: Int) {
+                cell.uiid = if (row % 2 != 0) "SalesTableOddRow" else "SalesTableEvenRow"
+                if (column == 1) {
+                    cell.text = L10NManager.getInstance().formatCurrency((value as Double))
+                } else {
+                    super.bindCell(cell, value, row, column)
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
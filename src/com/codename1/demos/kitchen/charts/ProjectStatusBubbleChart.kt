@@ -89,6 +89,6 @@ class ProjectStatusBubbleChart : AbstractDemoChart() {
         renderer.yLabels = 0
         renderer.setShowGrid(false)
         val chart = BubbleChart(series, renderer)
-        return newChart(chart)
+        return newChart(chart, true)
     }
 }
\ No newline at end of file
@@ -97,6 +97,6 @@ class ScatterChart : AbstractDemoChart() {
         }
         initRenderer(renderer)
         val chart = ScatterChart(dataSet, renderer)
-        return newChart(chart)
+        return newChart(chart, true)
     }
 }
\ No newline at end of file
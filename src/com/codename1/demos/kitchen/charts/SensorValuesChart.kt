@@ -22,45 +22,53 @@
  */
 package com.codename1.demos.kitchen.charts
 
+import com.codename1.charts.ChartComponent
 import com.codename1.charts.models.XYMultipleSeriesDataset
+import com.codename1.charts.renderers.XYMultipleSeriesRenderer
 import com.codename1.charts.renderers.XYSeriesRenderer
 import com.codename1.charts.util.ColorUtil
 import com.codename1.charts.util.MathHelper
 import com.codename1.charts.views.PointStyle
 import com.codename1.charts.views.TimeChart
+import com.codename1.demos.kitchen.AnimationScheduler
+import com.codename1.demos.kitchen.charts.models.RingTimeSeries
 import com.codename1.demos.kitchen.charts.models.XYMultipleSeriesEditor
 import com.codename1.ui.Component
 import com.codename1.ui.Display
 import java.util.*
 
 /**
- * Temperature sensor demo chart.
+ * Temperature sensor demo chart. In live mode the chart is fed by a simulated sensor and scrolls to show the
+ * latest readings.
+ *
+ * @param live true to stream simulated readings instead of showing the recorded day
  */
-class SensorValuesChart : AbstractDemoChart() {
+class SensorValuesChart(private val live: Boolean = false) : AbstractDemoChart() {
     private var dataSet: XYMultipleSeriesDataset? = null
         private get() {
             if (field == null) {
                 val titles = arrayOf<String?>("Inside", "Outside")
                 val now = Math.round(Date().time / DAY.toFloat()) * DAY
-                x = ArrayList()
+                val x: MutableList<LongArray> = ArrayList()
                 for (i in titles.indices) {
-                    val dates = arrayOfNulls<Date>(HOURS)
+                    val times = LongArray(HOURS)
                     for (j in 0 until HOURS) {
-                        dates[j] = Date(now - (HOURS - j) * HOUR)
+                        times[j] = now - (HOURS - j) * HOUR
                     }
-                    (x as ArrayList<Array<Date?>>).add(dates)
+                    x.add(times)
                 }
+                this.x = x
                 val values: MutableList<DoubleArray> = ArrayList()
                 values.add(doubleArrayOf(21.2, 21.5, 21.7, 21.5, 21.4, 21.4, 21.3, 21.1, 20.6, 20.3, 20.2,
                         19.9, 19.7, 19.6, 19.9, 20.3, 20.6, 20.9, 21.2, 21.6, 21.9, 22.1, 21.7, 21.5))
                 values.add(doubleArrayOf(1.9, 1.2, 0.9, 0.5, 0.1, -0.5, -0.6, MathHelper.NULL_VALUE,
                         MathHelper.NULL_VALUE, -1.8, -0.3, 1.4, 3.4, 4.9, 7.0, 6.4, 3.4, 2.0, 1.5, 0.9, -0.5,
                         MathHelper.NULL_VALUE, -1.9, -2.5, -4.3))
-                field = buildDateDataset(titles, x as ArrayList<Array<Date?>>, values)
+                field = buildDateDataset(titles, x, values)
             }
             return field
         }
-    private var x: MutableList<Array<Date?>>? = null
+    private var x: MutableList<LongArray>? = null
 
     /**
      * Returns the chart name.
@@ -68,7 +76,7 @@ class SensorValuesChart : AbstractDemoChart() {
      * @return the chart name
      */
     override val name: String
-        get() = "Sensor data"
+        get() = if (live) "Live sensor data" else "Sensor data"
 
     /**
      * Returns the chart description.
@@ -79,6 +87,9 @@ class SensorValuesChart : AbstractDemoChart() {
         get() = "The temperature, as read from an outside and an inside sensors"
     override val chartModelEditor: Component?
         get() {
+            if (live) {
+                return null
+            }
             val x = XYMultipleSeriesEditor()
             x.init(dataSet)
             return x
@@ -95,10 +106,14 @@ class SensorValuesChart : AbstractDemoChart() {
             (renderer.getSeriesRendererAt(i) as XYSeriesRenderer).isFillPoints = true
         }
 
+        if (live) {
+            return createLiveChart(renderer)
+        }
+
         // lazy initialization of x...
         dataSet
         setChartSettings(renderer, "Sensor temperature", "Hour", "Celsius degrees",
-                x!![0][0]!!.time.toDouble(), x!![0][HOURS - 1]!!.time.toDouble(), -5.0, 30.0, ColorUtil.LTGRAY, ColorUtil.LTGRAY)
+                x!![0][0].toDouble(), x!![0][HOURS - 1].toDouble(), -5.0, 30.0, ColorUtil.LTGRAY, ColorUtil.LTGRAY)
         val strWidth = Display.getInstance().convertToPixels(25f)
         val numXLabels = Display.getInstance().displayWidth / (strWidth + 20)
         renderer.xLabels = numXLabels
@@ -110,12 +125,126 @@ class SensorValuesChart : AbstractDemoChart() {
         initRenderer(renderer)
         val chart = TimeChart(dataSet,
                 renderer)
-        return newChart(chart)
+        return newChart(chart, true)
+    }
+
+    private fun createLiveChart(renderer: XYMultipleSeriesRenderer): Component {
+        val series = arrayOf(RingTimeSeries("Inside", LIVE_CAPACITY), RingTimeSeries("Outside", LIVE_CAPACITY))
+        val dataset = XYMultipleSeriesDataset()
+        for (s in series) {
+            dataset.addSeries(s)
+        }
+        val now = System.currentTimeMillis().toDouble()
+        setChartSettings(renderer, "Live sensor temperature", "Time", "Celsius degrees",
+                now - LIVE_WINDOW, now, -5.0, 30.0, ColorUtil.LTGRAY, ColorUtil.LTGRAY)
+        val strWidth = Display.getInstance().convertToPixels(25f)
+        renderer.xLabels = Display.getInstance().displayWidth / (strWidth + 20)
+        renderer.yLabels = 10
+        renderer.setShowGrid(true)
+        renderer.xLabelsAlign = Component.CENTER
+        renderer.setYLabelsAlign(Component.RIGHT)
+        renderer.margins = intArrayOf(20, 30, 80, 0)
+        renderer.pointSize = 0f
+        initRenderer(renderer)
+        val chart = TimeChart(dataset, renderer)
+        chart.dateFormat = "HH:mm:ss"
+        val feed = SensorFeed(series)
+        return object : ChartComponent(chart) {
+            override fun initComponent() {
+                super.initComponent()
+                feed.start()
+                AnimationScheduler.register(componentForm, this)
+            }
+
+            override fun deinitialize() {
+                AnimationScheduler.unregister(this)
+                feed.stop()
+                super.deinitialize()
+            }
+
+            override fun animate(): Boolean {
+                val b = super.animate()
+
+                // Samples arrive faster than the display refreshes, everything queued since the last frame
+                // is drawn by a single repaint.
+                var changed = false
+                for (s in series) {
+                    changed = s.drain() || changed
+                }
+                if (!changed) {
+                    return b
+                }
+                val latest = series[0].maxX
+                renderer.xAxisMin = latest - LIVE_WINDOW
+                renderer.xAxisMax = latest
+                return true
+            }
+        }
+    }
+
+    /**
+     * Simulates the inside and outside sensors on a background thread. Every start bumps a generation and the
+     * producer thread exits once its generation is stale, so stopping and restarting quickly never leaves two
+     * producers feeding the series.
+     */
+    private class SensorFeed(private val series: Array<RingTimeSeries>) {
+        private val lock = Any()
+        private var generation = 0
+        private var running = false
+
+        fun start() {
+            synchronized(lock) {
+                if (running) {
+                    return
+                }
+                running = true
+                val token = ++generation
+                Thread({ produce(token) }, "SensorFeed").start()
+            }
+        }
+
+        /**
+         * Stops the producer, once this returns it won't offer any more samples.
+         */
+        fun stop() {
+            synchronized(lock) {
+                running = false
+                generation++
+            }
+        }
+
+        private fun produce(token: Int) {
+            val random = Random()
+            val base = doubleArrayOf(21.0, 2.0)
+            val readings = base.copyOf()
+            while (true) {
+                synchronized(lock) {
+                    if (generation != token) {
+                        return
+                    }
+                    val now = System.currentTimeMillis()
+                    for (i in series.indices) {
+                        readings[i] += (base[i] - readings[i]) * 0.01 + (random.nextDouble() - 0.5) * 0.2
+                        series[i].offer(now, readings[i])
+                    }
+                }
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL)
+                } catch (e: InterruptedException) {
+                    return
+                }
+            }
+        }
     }
 
     companion object {
         private const val HOUR = 3600 * 1000.toLong()
         private const val DAY = HOUR * 24
         private const val HOURS = 24
+
+        // The live chart shows the last 30 seconds, enough room for a sensor sampled at up to 100 Hz.
+        private const val LIVE_WINDOW = 30 * 1000.0
+        private const val LIVE_CAPACITY = 3000
+        private const val SAMPLE_INTERVAL = 20L
     }
 }
\ No newline at end of file
@@ -23,7 +23,6 @@ import com.codename1.charts.views.PointStyle
 import com.codename1.demos.kitchen.charts.models.XYMultipleSeriesEditor
 import com.codename1.ui.Component
 import com.codename1.ui.Display
-import com.codename1.ui.animations.Motion
 import java.util.*
 
 /**
@@ -94,26 +93,34 @@ class TrigonometricFunctionsChart : AbstractDemoChart() {
         renderer.xAxisMin = 0.0
         renderer.xAxisMax = 50.0
         initRenderer(renderer)
-        val m = Motion.createLinearMotion(0, 310, 10000)
         val chart = LineChart(dataSet, renderer)
         val cmp: ChartComponent = object : ChartComponent(chart) {
+            private val transition = ChartTransition(this)
+            private var started = false
+
             override fun initComponent() {
                 super.initComponent()
-                componentForm.registerAnimated(this)
-            }
-
-            override fun animate(): Boolean {
-                val b = super.animate()
-                return if (m.isFinished) {
-                    b
+                if (!started) {
+                    // Scroll through the functions once.
+                    started = true
+                    transition.duration = 10000
+                    transition.isLinear = true
+                    transition.captureRange(renderer)
+                    renderer.xAxisMin = 310.0
+                    renderer.xAxisMax = 360.0
+                    transition.start()
                 } else {
-                    renderer.xAxisMin = m.value.toDouble()
-                    renderer.xAxisMax = m.value + 50.toDouble()
-                    true
+                    transition.resume()
                 }
             }
+
+            override fun deinitialize() {
+                // Unregisters the transition from the AnimationScheduler, the scroll continues from the same
+                // point when the chart is shown again.
+                transition.pause()
+                super.deinitialize()
+            }
         }
-        m.start()
         return cmp
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts
+
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.Container
+import com.codename1.ui.Label
+import com.codename1.ui.TextField
+import com.codename1.ui.events.ActionEvent
+import com.codename1.ui.geom.Dimension
+import com.codename1.ui.layouts.BorderLayout
+import com.codename1.ui.layouts.GridLayout
+import com.codename1.ui.layouts.Layout
+import com.codename1.ui.table.TableModel
+import java.util.*
+
+/**
+ * An editable table that only creates components for the rows that are visible. Rows scrolled out of view are
+ * recycled for the rows scrolled into view and cell values are bound (and formatted) only when a row is shown,
+ * so the cost of the table depends on its height and not on the number of rows in the model.
+ *
+ * Subclasses customize the cells by overriding [createCell] and [bindCell], like [com.codename1.ui.table.Table]
+ * subclasses override `createCell`.
+ */
+open class VirtualTable(private val model: TableModel) : Container(BorderLayout()) {
+    private val body = Container(RowLayout())
+    private val visibleRows = ArrayList<Container>()
+    private val recycledRows = ArrayList<Container>()
+    private var rowHeight = 0
+
+    init {
+        val header = Container(GridLayout(1, model.columnCount))
+        for (column in 0 until model.columnCount) {
+            header.add(createHeaderCell(column))
+        }
+        add(BorderLayout.NORTH, header)
+        body.isScrollableY = true
+        body.addScrollListener { scrollX, scrollY, oldScrollX, oldScrollY -> updateRows() }
+        add(BorderLayout.CENTER, body)
+        model.addDataChangeListener { row: Int, column: Int -> modelChanged() }
+    }
+
+    /**
+     * Creates the header cell of a column.
+     */
+    protected open fun createHeaderCell(column: Int): Component {
+        return Label(model.getColumnName(column), "TableHeader")
+    }
+
+    /**
+     * Creates an editor for a column, the editor is reused for every row shown in that column.
+     */
+    protected open fun createCell(column: Int): TextField {
+        val cell = TextField()
+        cell.uiid = "TableCell"
+        cell.isEditable = model.isCellEditable(0, column)
+        return cell
+    }
+
+    /**
+     * Shows a value in a cell, called whenever a cell is assigned to a row.
+     */
+    protected open fun bindCell(cell: TextField, value: Any?, row: Int, column: Int) {
+        cell.text = value?.toString() ?: ""
+    }
+
+    /**
+     * Called when the user edited a cell, sets the value in the model by default.
+     */
+    protected open fun cellEdited(cell: TextField, row: Int, column: Int) {
+        model.setValueAt(row, column, cell.text)
+    }
+
+    override fun initComponent() {
+        super.initComponent()
+        updateRows()
+    }
+
+    private fun modelChanged() {
+        body.setShouldCalcPreferredSize(true)
+        updateRows()
+        for (row in visibleRows) {
+            bindRow(row, rowIndex(row))
+        }
+    }
+
+    private fun updateRows() {
+        if (rowHeight == 0) {
+            if (model.rowCount == 0) {
+                return
+            }
+            val prototype = obtainRow()
+            bindRow(prototype, 0)
+            rowHeight = Math.max(prototype.preferredH, 1)
+            recycledRows.add(prototype)
+        }
+        val height = if (body.height > 0) body.height else CN.getDisplayHeight()
+        val first = Math.max(body.scrollY / rowHeight - OVERSCAN, 0)
+        val last = Math.min((body.scrollY + height) / rowHeight + OVERSCAN, model.rowCount - 1)
+        val iter = visibleRows.iterator()
+        while (iter.hasNext()) {
+            val row = iter.next()
+            val index = rowIndex(row)
+            if (index < first || index > last) {
+                iter.remove()
+                body.removeComponent(row)
+                recycledRows.add(row)
+            }
+        }
+        var index = first
+        while (index <= last) {
+            if (!isBound(index)) {
+                val row = obtainRow()
+                bindRow(row, index)
+                visibleRows.add(row)
+                body.addComponent(row)
+            }
+            index++
+        }
+        body.layoutContainer()
+        body.repaint()
+    }
+
+    private fun isBound(index: Int): Boolean {
+        for (row in visibleRows) {
+            if (rowIndex(row) == index) {
+                return true
+            }
+        }
+        return false
+    }
+
+    private fun obtainRow(): Container {
+        if (recycledRows.isNotEmpty()) {
+            return recycledRows.removeAt(recycledRows.size - 1)
+        }
+        val row = Container(GridLayout(1, model.columnCount))
+        for (column in 0 until model.columnCount) {
+            val cell = createCell(column)
+            cell.addActionListener { e: ActionEvent? ->
+                val index = rowIndex(row)
+                cellEdited(cell, index, column)
+                bindCell(cell, model.getValueAt(index, column), index, column)
+            }
+            row.add(cell)
+        }
+        return row
+    }
+
+    private fun bindRow(row: Container, index: Int) {
+        row.putClientProperty(ROW, index)
+        for (column in 0 until model.columnCount) {
+            val cell = row.getComponentAt(column) as TextField
+            if (cell.isEditing) {
+                cell.stopEditing()
+            }
+            bindCell(cell, model.getValueAt(index, column), index, column)
+        }
+    }
+
+    private fun rowIndex(row: Container): Int = row.getClientProperty(ROW) as Int
+
+    /**
+     * Places the bound rows at their position in the model, the container is as tall as all the rows.
+     */
+    private inner class RowLayout : Layout() {
+        override fun layoutContainer(parent: Container) {
+            val style = parent.style
+            val left = style.getPaddingLeft(parent.isRTL)
+            val width = parent.layoutWidth - parent.sideGap - left - style.getPaddingRight(parent.isRTL)
+            val top = style.paddingTop
+            for (i in 0 until parent.componentCount) {
+                val row = parent.getComponentAt(i) as Container
+                row.x = left
+                row.y = top + rowIndex(row) * rowHeight
+                row.width = width
+                row.height = rowHeight
+                row.layoutContainer()
+            }
+        }
+
+        override fun getPreferredSize(parent: Container): Dimension {
+            val style = parent.style
+            var width = 0
+            if (parent.componentCount > 0) {
+                width = parent.getComponentAt(0).preferredW
+            }
+            return Dimension(width + style.horizontalPadding, model.rowCount * rowHeight + style.verticalPadding)
+        }
+    }
+
+    companion object {
+        private const val ROW = "VirtualTable.row"
+
+        // Rows bound above and below the visible area so short scrolls don't have to bind rows.
+        private const val OVERSCAN = 4
+    }
+}
@@ -22,11 +22,11 @@
  */
 package com.codename1.demos.kitchen.charts
 
-import com.codename1.charts.models.CategorySeries
 import com.codename1.charts.renderers.DialRenderer
 import com.codename1.charts.renderers.SimpleSeriesRenderer
 import com.codename1.charts.util.ColorUtil
 import com.codename1.charts.views.DialChart
+import com.codename1.demos.kitchen.charts.models.VersionedCategorySeries
 import com.codename1.ui.Component
 
 /**
@@ -54,7 +54,7 @@ class WeightDialChart : AbstractDemoChart() {
         get() = "Weight indicator"
 
     override fun execute(): Component {
-        val category = CategorySeries("Weight indic")
+        val category = VersionedCategorySeries("Weight indic")
         category.add("Current", 75.0)
         category.add("Minimum", 65.0)
         category.add("Maximum", 90.0)
@@ -80,6 +80,8 @@ class WeightDialChart : AbstractDemoChart() {
         renderer.maxValue = 150.0
         initRenderer(renderer)
         val chart = DialChart(category, renderer)
-        return newChart(chart)
+        val component = newChart(chart)
+        (component as CachedChartComponent).watch(category)
+        return component
     }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.benchmark
+
+import com.codename1.charts.ChartComponent
+import com.codename1.charts.models.XYValueSeries
+import com.codename1.charts.views.XYChart
+import com.codename1.demos.kitchen.charts.*
+import com.codename1.demos.kitchen.charts.models.ColumnarXYSeries
+import com.codename1.ui.Component
+import com.codename1.ui.Graphics
+import com.codename1.ui.Image
+
+/**
+ * Renders every chart demo into offscreen images and reports the time and the heap allocated per frame as
+ * JSON, so the numbers of two builds can be diffed. Nothing is shown on screen, the benchmark only needs the
+ * Codename One display to be initialized (e.g. the JavaSE port) and should run off the EDT.
+ *
+ * The XY datasets are scaled synthetically to every size in [pointCounts] by stretching the demo data over the
+ * same x range, bubble series keep their original points.
+ */
+object ChartBenchmark {
+    /**
+     * The number of points per series the XY charts are benchmarked with.
+     */
+    var pointCounts = intArrayOf(10, 1000, 100000, 1000000)
+
+    /**
+     * The image sizes, as width and height pairs.
+     */
+    var sizes = arrayOf(intArrayOf(320, 480), intArrayOf(1080, 1920), intArrayOf(2048, 1536))
+
+    /**
+     * The number of measured frames per configuration, after a warm up frame.
+     */
+    var frames = 10
+
+    /**
+     * Creates the charts to benchmark, a new instance is needed per configuration.
+     */
+    var charts: Array<() -> AbstractDemoChart> = arrayOf(
+            { SalesBarChart() },
+            { ProjectStatusBubbleChart() },
+            { CombinedTemperatureChart() },
+            { AverageCubicTemperatureChart() },
+            { WeightDialChart() },
+            { BudgetDoughnutChart() },
+            { TrigonometricFunctionsChart() },
+            { BudgetPieChart() },
+            { EmployeeChart() },
+            { ScatterChart() },
+            { SensorValuesChart() })
+
+    /**
+     * Runs the benchmark.
+     *
+     * @return the results as a JSON array with one object per chart, size and point count
+     */
+    fun run(): String {
+        val out = StringBuilder("[")
+        for (factory in charts) {
+            // The first configuration uses the instance created to check the chart type.
+            var demo = factory()
+            var component: Component? = demo.execute()
+
+            // Pie, dial and radar charts are only rendered with their demo data.
+            val counts = if (isScalable(component!!)) pointCounts else intArrayOf(-1)
+            for (points in counts) {
+                for (size in sizes) {
+                    if (component == null) {
+                        demo = factory()
+                        component = demo.execute()
+                    }
+                    if (points >= 0) {
+                        scale(component, points)
+                    }
+                    if (out.length > 1) {
+                        out.append(',')
+                    }
+                    out.append("\n{\"chart\":\"").append(demo.javaClass.name.substringAfterLast('.'))
+                            .append("\",\"points\":").append(if (points >= 0) points.toString() else "null")
+                            .append(",\"width\":").append(size[0])
+                            .append(",\"height\":").append(size[1])
+                    measure(component, size[0], size[1], out)
+                    out.append('}')
+                    component = null
+                }
+            }
+        }
+        return out.append("\n]").toString()
+    }
+
+    private fun isScalable(component: Component): Boolean {
+        return component is ChartComponent && component.chart is XYChart
+    }
+
+    /**
+     * Replaces the series of an XY chart with series of the given size.
+     */
+    private fun scale(component: Component, points: Int) {
+        val chart = (component as? ChartComponent)?.chart as? XYChart ?: return
+        val dataset = chart.dataset
+        val original = dataset.series
+        dataset.clear()
+        for (series in original) {
+            val count = series.itemCount
+            if (series is XYValueSeries || count == 0) {
+                dataset.addSeries(series)
+                continue
+            }
+            val minX = series.minX
+            val span = series.maxX - minX
+            val x = DoubleArray(points)
+            val y = DoubleArray(points)
+            for (i in 0 until points) {
+                x[i] = if (points > 1) minX + span * i / (points - 1) else minX
+                y[i] = series.getY(i % count)
+            }
+            dataset.addSeries(ColumnarXYSeries.wrap(series.title, x, y, series.scaleNumber))
+        }
+    }
+
+    private fun measure(component: Component, width: Int, height: Int, out: StringBuilder) {
+        component.x = 0
+        component.y = 0
+        component.width = width
+        component.height = height
+
+        // Measure the full rendering pipeline rather than the blit of the cached image.
+        if (component is CachedChartComponent) {
+            component.isCaching = false
+        }
+        val image = Image.createImage(width, height, 0)
+        val g = image.graphics
+        val runtime = Runtime.getRuntime()
+
+        var start = System.currentTimeMillis()
+        render(component, g)
+        val firstFrame = System.currentTimeMillis() - start
+
+        System.gc()
+        val usedBefore = runtime.totalMemory() - runtime.freeMemory()
+        start = System.currentTimeMillis()
+        for (i in 0 until frames) {
+            render(component, g)
+        }
+        val elapsed = System.currentTimeMillis() - start
+        val usedAfter = runtime.totalMemory() - runtime.freeMemory()
+
+        out.append(",\"firstFrameMs\":").append(firstFrame)
+                .append(",\"msPerFrame\":").append(elapsed.toDouble() / frames)
+
+        // Only indicative, a collection during the frames makes it negative and it's then reported as -1.
+        val allocated = usedAfter - usedBefore
+        out.append(",\"bytesPerFrame\":").append(if (allocated < 0) -1 else allocated / frames)
+    }
+
+    private fun render(component: Component, g: Graphics) {
+        component.paint(g)
+    }
+}
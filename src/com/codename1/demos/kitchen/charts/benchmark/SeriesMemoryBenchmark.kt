@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.benchmark
+
+import com.codename1.charts.models.XYSeries
+import com.codename1.demos.kitchen.charts.models.ColumnarXYSeries
+
+/**
+ * Compares the heap used per point by the boxed [XYSeries] and by [ColumnarXYSeries]. Heap measurements are
+ * only indicative, run it a few times and with large point counts.
+ */
+object SeriesMemoryBenchmark {
+    private var retained: Any? = null
+
+    /**
+     * Builds both kinds of series with the given number of points and reports the bytes used per point.
+     *
+     * @param points the number of points per series
+     * @return the results as a JSON object
+     */
+    fun run(points: Int): String {
+        val boxed = measure(points) {
+            val series = XYSeries("Boxed")
+            for (i in 0 until points) {
+                series.add(i.toDouble(), i * 0.5)
+            }
+            series
+        }
+        val columnar = measure(points) {
+            val series = ColumnarXYSeries("Columnar")
+            for (i in 0 until points) {
+                series.add(i.toDouble(), i * 0.5)
+            }
+            series
+        }
+        return "{\"points\":" + points + ",\"xySeriesBytesPerPoint\":" + round(boxed) +
+                ",\"columnarBytesPerPoint\":" + round(columnar) + "}"
+    }
+
+    private fun measure(points: Int, build: () -> Any): Double {
+        val before = usedMemory()
+        retained = build()
+        val after = usedMemory()
+        retained = null
+        return (after - before).toDouble() / points
+    }
+
+    private fun usedMemory(): Long {
+        val runtime = Runtime.getRuntime()
+        System.gc()
+        System.gc()
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private fun round(value: Double): Double = Math.round(value * 10) / 10.0
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.XYSeries
+import java.util.*
+
+/**
+ * An XY series storing its points in two primitive arrays instead of the boxed map of [XYSeries]. The arrays
+ * grow by doubling and arrays created by the caller can be wrapped without copying, see [wrap].
+ *
+ * Points are kept sorted by x like in [XYSeries], so the chart can find the visible range with a binary search.
+ * Points and annotations can be replaced in place, see [set] and [setAnnotation].
+ *
+ * The series always holds every point, editors and importers change it directly. Only the range handed to the
+ * chart for drawing can be reduced to about the plot width, see [renderLimit].
+ */
+open class ColumnarXYSeries(title: String?, scaleNumber: Int = 0) : XYSeries(title, scaleNumber), PointSource,
+        Versioned {
+    private var xs = DoubleArray(INITIAL_CAPACITY)
+    private var ys = DoubleArray(INITIAL_CAPACITY)
+    private var count = 0
+
+    // True while the arrays are the ones passed to wrap, they are copied before the first change.
+    private var shared = false
+
+    // The y bounds, built by the first query and kept up to date while points are appended or replaced in
+    // place. Inserting or removing a point shifts the indices, so the tree is dropped and built again on demand.
+    private var yExtent: MinMaxTree? = null
+    private val annotations = ArrayList<String?>()
+    private var annotationXs = DoubleArray(0)
+    private var annotationYs = DoubleArray(0)
+
+    // Scratch space of the batch sort, grown by doubling and kept for the next unsorted batch.
+    private var scratchX = DoubleArray(0)
+    private var scratchY = DoubleArray(0)
+
+    // Incremented by the changes that aren't appends, the min/max pyramid of the samples can only follow appends.
+    private var structure = 0
+    private var samples: Samples? = null
+
+    override var version = 0
+        private set
+
+    /**
+     * The maximal number of points [getRange] hands to the chart, 0 to draw every point. Larger visible ranges
+     * are reduced with Largest-Triangle-Three-Buckets, see [Lttb], after a first pass through a [MinMaxPyramid]
+     * when zoomed out far, so the cost of drawing depends on the plot width rather than on the series size.
+     */
+    @Volatile
+    var renderLimit = 0
+
+    override val pointCount: Int
+        get() = count
+
+    override fun xAt(index: Int): Double = xs[index]
+
+    override fun yAt(index: Int): Double = ys[index]
+
+    @Synchronized
+    override fun add(x: Double, y: Double) {
+        if (count == 0 || x >= xs[count - 1]) {
+            own()
+            ensureCapacity(count + 1)
+            xs[count] = x
+            ys[count] = y
+            count++
+            yExtent?.add(y)
+        } else {
+            insert(PointRangeMap.upperBound(this, x, 0, count), x, y)
+        }
+    }
+
+    /**
+     * Adds a point, like the map backing [XYSeries] the point is placed according to its x value so the index
+     * is only a hint.
+     */
+    @Synchronized
+    override fun add(index: Int, x: Double, y: Double) {
+        val fits = index in 0..count && (index == 0 || xs[index - 1] <= x) && (index == count || x <= xs[index])
+        insert(if (fits) index else PointRangeMap.upperBound(this, x, 0, count), x, y)
+    }
+
+    /**
+     * Adds a batch of points. The batch is appended, sorted and merged with the existing points in one pass, so
+     * unsorted batches cost O((n + m) log m) instead of one O(n) insertion per point. The sort only needs scratch
+     * space for the batch, which is reused by later batches.
+     *
+     * @param x the x values
+     * @param y the y values
+     * @param from the index of the first point to add
+     * @param to the index after the last point to add
+     */
+    @Synchronized
+    fun addAll(x: DoubleArray, y: DoubleArray, from: Int, to: Int) {
+        val added = to - from
+        if (added <= 0) {
+            return
+        }
+        own()
+        ensureCapacity(count + added)
+        System.arraycopy(x, from, xs, count, added)
+        System.arraycopy(y, from, ys, count, added)
+        val start = count
+        count += added
+        var sorted = start == 0 || xs[start - 1] <= xs[start]
+        for (i in start + 1 until count) {
+            if (xs[i - 1] > xs[i]) {
+                sorted = false
+                break
+            }
+        }
+        if (sorted) {
+            val bounds = yExtent
+            if (bounds != null) {
+                for (i in start until count) {
+                    bounds.add(ys[i])
+                }
+            }
+            return
+        }
+        if (scratchX.size < added) {
+            var size = Math.max(scratchX.size, INITIAL_CAPACITY)
+            while (size < added) {
+                size = size shl 1
+            }
+            scratchX = DoubleArray(size)
+            scratchY = DoubleArray(size)
+        }
+        sortRange(start, count)
+        if (start > 0) {
+            merge(0, start, count)
+        }
+        structure++
+        yExtent = null
+    }
+
+    /**
+     * Replaces the point at the given index. The point is updated in place unless the new x value moves it
+     * past one of its neighbours.
+     *
+     * @param index the point index
+     * @param x the new x value
+     * @param y the new y value
+     */
+    @Synchronized
+    fun set(index: Int, x: Double, y: Double) {
+        if ((index == 0 || xs[index - 1] <= x) && (index == count - 1 || x <= xs[index + 1])) {
+            own()
+            xs[index] = x
+            ys[index] = y
+            structure++
+            yExtent?.set(index, y)
+        } else {
+            remove(index)
+            add(x, y)
+        }
+    }
+
+    @Synchronized
+    override fun remove(index: Int) {
+        own()
+        System.arraycopy(xs, index + 1, xs, index, count - index - 1)
+        System.arraycopy(ys, index + 1, ys, index, count - index - 1)
+        count--
+        structure++
+        yExtent = null
+    }
+
+    @Synchronized
+    override fun clear() {
+        super.clear()
+        clearPoints()
+        annotations.clear()
+    }
+
+    @Synchronized
+    override fun clearSeriesValues() {
+        super.clearSeriesValues()
+        clearPoints()
+    }
+
+    @Synchronized
+    override fun getItemCount(): Int = count
+
+    @Synchronized
+    override fun getX(index: Int): Double = xs[index]
+
+    @Synchronized
+    override fun getY(index: Int): Double = ys[index]
+
+    // The points are sorted by x, so the x bounds are the first and the last point.
+    @Synchronized
+    override fun getMinX(): Double = if (count == 0) Double.MAX_VALUE else xs[0]
+
+    @Synchronized
+    override fun getMaxX(): Double = if (count == 0) -Double.MAX_VALUE else xs[count - 1]
+
+    @Synchronized
+    override fun getMinY(): Double {
+        val min = yBounds().min
+        return if (min == Double.POSITIVE_INFINITY) Double.MAX_VALUE else min
+    }
+
+    @Synchronized
+    override fun getMaxY(): Double {
+        val max = yBounds().max
+        return if (max == Double.NEGATIVE_INFINITY) -Double.MAX_VALUE else max
+    }
+
+    override fun getIndexForKey(key: Double): Int = PointRangeMap.indexOf(this, key)
+
+    @Synchronized
+    override fun getAnnotationCount(): Int = annotations.size
+
+    @Synchronized
+    override fun getAnnotationAt(index: Int): String? = annotations[index]
+
+    @Synchronized
+    override fun getAnnotationX(index: Int): Double = annotationXs[index]
+
+    @Synchronized
+    override fun getAnnotationY(index: Int): Double = annotationYs[index]
+
+    @Synchronized
+    override fun addAnnotation(annotation: String?, x: Double, y: Double) {
+        addAnnotation(annotation, annotations.size, x, y)
+    }
+
+    @Synchronized
+    override fun addAnnotation(annotation: String?, index: Int, x: Double, y: Double) {
+        val size = annotations.size
+        if (size == annotationXs.size) {
+            annotationXs = annotationXs.copyOf(Math.max(size * 2, 4))
+            annotationYs = annotationYs.copyOf(annotationXs.size)
+        }
+        System.arraycopy(annotationXs, index, annotationXs, index + 1, size - index)
+        System.arraycopy(annotationYs, index, annotationYs, index + 1, size - index)
+        annotations.add(index, annotation)
+        annotationXs[index] = x
+        annotationYs[index] = y
+    }
+
+    @Synchronized
+    override fun removeAnnotation(index: Int) {
+        val size = annotations.size
+        System.arraycopy(annotationXs, index + 1, annotationXs, index, size - index - 1)
+        System.arraycopy(annotationYs, index + 1, annotationYs, index, size - index - 1)
+        annotations.removeAt(index)
+    }
+
+    /**
+     * Replaces the annotation at the given index in place.
+     *
+     * @param index the annotation index
+     * @param annotation the annotation text
+     * @param x the annotation x value
+     * @param y the annotation y value
+     */
+    @Synchronized
+    fun setAnnotation(index: Int, annotation: String?, x: Double, y: Double) {
+        annotations[index] = annotation
+        annotationXs[index] = x
+        annotationYs[index] = y
+    }
+
+    @Synchronized
+    override fun getRange(start: Double, stop: Double, beforeAfterPoints: Boolean): SortedMap<Double, Double> {
+        val limit = renderLimit
+        if (limit < 3) {
+            return PointRangeMap.range(this, start, stop, beforeAfterPoints)
+        }
+        var first = PointRangeMap.lowerBound(this, start, 0, count)
+        var last = PointRangeMap.upperBound(this, stop, first, count)
+        if (beforeAfterPoints) {
+            first = Math.max(first - 1, 0)
+            last = Math.min(last + 1, count)
+        }
+        if (last - first <= limit) {
+            return PointRangeMap(this, first, last)
+        }
+        var s = samples
+        if (s == null) {
+            s = Samples()
+            samples = s
+        }
+        s.sample(first, last, limit)
+        return PointRangeMap(s, 0, s.pointCount)
+    }
+
+    /**
+     * Makes sure the series can hold the given number of points without growing.
+     *
+     * @param capacity the number of points
+     */
+    @Synchronized
+    fun ensureCapacity(capacity: Int) {
+        if (capacity > xs.size || capacity > ys.size) {
+            var size = Math.max(xs.size, INITIAL_CAPACITY)
+            while (size < capacity) {
+                size = size shl 1
+            }
+            xs = xs.copyOf(size)
+            ys = ys.copyOf(size)
+        }
+    }
+
+    private fun insert(index: Int, x: Double, y: Double) {
+        own()
+        ensureCapacity(count + 1)
+        System.arraycopy(xs, index, xs, index + 1, count - index)
+        System.arraycopy(ys, index, ys, index + 1, count - index)
+        xs[index] = x
+        ys[index] = y
+        count++
+        structure++
+        yExtent = null
+    }
+
+    private fun clearPoints() {
+        if (shared || xs.size > INITIAL_CAPACITY) {
+            xs = DoubleArray(INITIAL_CAPACITY)
+            ys = DoubleArray(INITIAL_CAPACITY)
+            shared = false
+        }
+        count = 0
+        structure++
+        yExtent = null
+        version++
+    }
+
+    // Called before every change to the points.
+    private fun own() {
+        version++
+        if (shared) {
+            xs = xs.copyOf()
+            ys = ys.copyOf()
+            shared = false
+        }
+    }
+
+    // Stable merge sort of the points in [from, to) by x.
+    private fun sortRange(from: Int, to: Int) {
+        if (to - from < 2) {
+            return
+        }
+        val middle = (from + to) ushr 1
+        sortRange(from, middle)
+        sortRange(middle, to)
+        merge(from, middle, to)
+    }
+
+    // Merges the sorted runs [from, middle) and [middle, to). Only the right run is copied to the scratch arrays,
+    // the runs are merged from the back into the series arrays.
+    private fun merge(from: Int, middle: Int, to: Int) {
+        if (xs[middle - 1] <= xs[middle]) {
+            return
+        }
+        val right = to - middle
+        System.arraycopy(xs, middle, scratchX, 0, right)
+        System.arraycopy(ys, middle, scratchY, 0, right)
+        var left = middle - 1
+        var r = right - 1
+        var i = to - 1
+        while (r >= 0) {
+            if (left >= from && xs[left] > scratchX[r]) {
+                xs[i] = xs[left]
+                ys[i--] = ys[left--]
+            } else {
+                xs[i] = scratchX[r]
+                ys[i--] = scratchY[r--]
+            }
+        }
+    }
+
+    private fun yBounds(): MinMaxTree {
+        var bounds = yExtent
+        if (bounds == null) {
+            bounds = MinMaxTree(Math.max(count, INITIAL_CAPACITY))
+            for (i in 0 until count) {
+                bounds.add(ys[i])
+            }
+            yExtent = bounds
+        }
+        return bounds
+    }
+
+    /**
+     * The reduced points of the last range drawn, resampled only when the range, the limit or the points change.
+     */
+    private inner class Samples : PointSource {
+        private var sampledX = DoubleArray(0)
+        private var sampledY = DoubleArray(0)
+        private var sampled = 0
+        private var bucketX = DoubleArray(0)
+        private var bucketY = DoubleArray(0)
+        private var pyramid: MinMaxPyramid? = null
+        private var pyramidStructure = 0
+        private var from = -1
+        private var to = -1
+        private var limit = -1
+        private var sampledVersion = -1
+
+        override val pointCount: Int
+            get() = sampled
+
+        override fun xAt(index: Int): Double = sampledX[index]
+
+        override fun yAt(index: Int): Double = sampledY[index]
+
+        fun sample(from: Int, to: Int, limit: Int) {
+            if (from == this.from && to == this.to && limit == this.limit && sampledVersion == version) {
+                return
+            }
+            this.from = from
+            this.to = to
+            this.limit = limit
+            sampledVersion = version
+            if (sampledX.size < limit) {
+                sampledX = DoubleArray(limit)
+                sampledY = DoubleArray(limit)
+            }
+            if (to - from <= limit * PYRAMID_FACTOR) {
+                sampled = Lttb.downsample(xs, ys, from, to, limit, sampledX, sampledY)
+                return
+            }
+
+            // Zoomed out over many points, take the min/max buckets matching the plot width from the pyramid
+            // first so the cost doesn't depend on the number of visible points.
+            var p = pyramid
+            if (p == null || pyramidStructure != structure) {
+                p = MinMaxPyramid(this@ColumnarXYSeries)
+                pyramid = p
+                pyramidStructure = structure
+            } else {
+                p.update()
+            }
+            val bucketSize = limit * PYRAMID_FACTOR
+            if (bucketX.size < bucketSize) {
+                bucketX = DoubleArray(bucketSize)
+                bucketY = DoubleArray(bucketSize)
+            }
+            val buckets = p.sample(from, to, bucketSize, bucketX, bucketY)
+            sampled = Lttb.downsample(bucketX, bucketY, 0, buckets, limit, sampledX, sampledY)
+        }
+    }
+
+    companion object {
+        private const val INITIAL_CAPACITY = 16
+
+        // Visible ranges longer than this many times the render limit are reduced with the min/max pyramid.
+        private const val PYRAMID_FACTOR = 4
+
+        /**
+         * Creates a series that uses the given arrays as its storage. The arrays are not copied until the series
+         * is changed, so the caller must not change them either.
+         *
+         * @param title the series title
+         * @param x the x values sorted in ascending order
+         * @param y the y values
+         * @param scaleNumber the scale number
+         * @return the series
+         */
+        fun wrap(title: String?, x: DoubleArray, y: DoubleArray, scaleNumber: Int = 0): ColumnarXYSeries {
+            val series = ColumnarXYSeries(title, scaleNumber)
+            series.xs = x
+            series.ys = y
+            series.count = Math.min(x.size, y.size)
+            series.shared = true
+            return series
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.XYMultipleSeriesDataset
+import com.codename1.charts.util.MathHelper
+import com.codename1.io.FileSystemStorage
+import com.codename1.io.Util
+import com.codename1.ui.CN
+import java.io.InputStream
+
+/**
+ * Streams numeric CSV data into a chart dataset. The file is parsed byte by byte on a background thread straight
+ * into primitive arrays, only the header line is turned into strings, so files of any size can be imported with
+ * a memory use proportional to the data and not to the text.
+ *
+ * Fields follow RFC 4180: a field can be quoted to hold separators and line breaks, and a quote inside a quoted
+ * field is written twice. Rows are handed to the EDT in chunks and appended to one [ColumnarXYSeries] per y
+ * column. The parser waits for each chunk to be applied before reading on, so a slow EDT holds back the parser
+ * instead of queueing the whole file. The chart can be repainted from [chunkLoaded] to show the data loaded so
+ * far. Rows whose x value isn't a number are skipped, y values that aren't numbers are imported as
+ * [MathHelper.NULL_VALUE].
+ *
+ * @param dataset the dataset the series are added to
+ * @param xColumn the index of the column holding the x values
+ * @param yColumns the indices of the columns holding the y values, one series is created per column
+ */
+class CsvSeriesImporter(private val dataset: XYMultipleSeriesDataset, private val xColumn: Int = 0,
+                        private val yColumns: IntArray = intArrayOf(1)) {
+    /**
+     * The field separator.
+     */
+    var separator = ','
+
+    /**
+     * True if the first line holds the column names, they are used as series titles.
+     */
+    var hasHeader = true
+
+    /**
+     * Invoked on the EDT with the fraction of the input read so far, if the input length is known.
+     */
+    var progress: ((Double) -> Unit)? = null
+
+    /**
+     * Invoked on the EDT after a chunk of rows was appended to the series.
+     */
+    var chunkLoaded: (() -> Unit)? = null
+
+    /**
+     * Invoked on the EDT with the number of imported rows when the import ended, and the error that ended it if
+     * it failed.
+     */
+    var finished: ((Int, Throwable?) -> Unit)? = null
+
+    @Volatile
+    private var cancelled = false
+    private val series = Array(yColumns.size) { ColumnarXYSeries("Column " + yColumns[it]) }
+
+    /**
+     * Imports a file from the [FileSystemStorage].
+     *
+     * @param path the file path
+     */
+    fun importFile(path: String) {
+        val fs = FileSystemStorage.getInstance()
+        importStream(fs.openInputStream(path), fs.getLength(path))
+    }
+
+    /**
+     * Imports a stream, the stream is closed when the import ends.
+     *
+     * @param input the CSV stream
+     * @param length the length of the stream in bytes or -1 if unknown
+     */
+    fun importStream(input: InputStream, length: Long) {
+        for (s in series) {
+            dataset.addSeries(s)
+        }
+        Thread({ parse(input, length) }, "CsvSeriesImporter").start()
+    }
+
+    /**
+     * Stops the import, the rows imported so far are kept.
+     */
+    fun cancel() {
+        cancelled = true
+    }
+
+    private fun parse(input: InputStream, length: Long) {
+        val buffer = ByteArray(BUFFER_SIZE)
+        val field = CharArray(MAX_FIELD_LENGTH)
+        val header = java.io.ByteArrayOutputStream()
+        val headerTitles = ArrayList<String>()
+        val row = DoubleArray(yColumns.size)
+        val chunk = Chunk(yColumns.size)
+        var fieldLength = 0
+        var quoted = false
+        var closedQuote = false
+        var column = 0
+        var rowX = Double.NaN
+        var inHeader = hasHeader
+        var read = 0L
+        var rows = 0
+        var error: Throwable? = null
+        row.fill(MathHelper.NULL_VALUE)
+        try {
+            while (!cancelled) {
+                val count = input.read(buffer)
+                if (count < 0) {
+                    break
+                }
+                read += count
+                for (i in 0 until count) {
+                    val b = buffer[i].toInt() and 0xff
+                    val c = b.toChar()
+                    var literal = false
+                    if (quoted) {
+                        if (c == '"') {
+                            // Either the closing quote or the first half of an escaped one.
+                            quoted = false
+                            closedQuote = true
+                        } else {
+                            literal = true
+                        }
+                    } else if (c == '"' && (closedQuote || (if (inHeader) header.size() == 0 else fieldLength == 0))) {
+                        // An opening quote, or a quote escaped by doubling it.
+                        literal = closedQuote
+                        quoted = true
+                        closedQuote = false
+                    } else if (c == separator || c == '\n') {
+                        closedQuote = false
+                        if (inHeader) {
+                            headerTitles.add(header.toString("UTF-8").trim())
+                            header.reset()
+                        } else {
+                            val value = parseNumber(field, fieldLength)
+                            if (column == xColumn) {
+                                rowX = value
+                            }
+                            for (y in yColumns.indices) {
+                                if (yColumns[y] == column) {
+                                    row[y] = if (value.isNaN()) MathHelper.NULL_VALUE else value
+                                }
+                            }
+                        }
+                        fieldLength = 0
+                        column++
+                        if (c == '\n') {
+                            if (inHeader) {
+                                inHeader = false
+                                publishTitles(headerTitles)
+                            } else if (!rowX.isNaN()) {
+                                chunk.add(rowX, row)
+                                rows++
+                                if (chunk.size == CHUNK_ROWS) {
+                                    publish(chunk, read, length)
+                                }
+                            }
+                            column = 0
+                            rowX = Double.NaN
+                            row.fill(MathHelper.NULL_VALUE)
+                        }
+                    } else {
+                        closedQuote = false
+                        literal = c != '\r'
+                    }
+                    if (literal) {
+                        if (inHeader) {
+                            header.write(b)
+                        } else if (fieldLength < MAX_FIELD_LENGTH) {
+                            field[fieldLength++] = c
+                        }
+                    }
+                }
+            }
+
+            // The last line may not end with a line break.
+            if (!inHeader && (column > 0 || fieldLength > 0)) {
+                val value = parseNumber(field, fieldLength)
+                if (column == xColumn) {
+                    rowX = value
+                }
+                for (y in yColumns.indices) {
+                    if (yColumns[y] == column) {
+                        row[y] = if (value.isNaN()) MathHelper.NULL_VALUE else value
+                    }
+                }
+                if (!rowX.isNaN()) {
+                    chunk.add(rowX, row)
+                    rows++
+                }
+            }
+        } catch (t: Throwable) {
+            error = t
+        } finally {
+            Util.cleanup(input)
+        }
+        publish(chunk, read, length)
+        val result = rows
+        val failure = error
+        CN.callSerially { finished?.invoke(result, failure) }
+    }
+
+    private fun publishTitles(titles: List<String>) {
+        CN.callSerially {
+            for (y in yColumns.indices) {
+                if (yColumns[y] < titles.size) {
+                    series[y].title = titles[yColumns[y]]
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the chunk to the series on the EDT and waits until it's done, the chunk can then be refilled.
+     */
+    private fun publish(chunk: Chunk, read: Long, length: Long) {
+        CN.callSeriallyAndWait {
+            for (y in series.indices) {
+                series[y].addAll(chunk.x, chunk.y[y], 0, chunk.size)
+            }
+            chunkLoaded?.invoke()
+            if (length > 0) {
+                progress?.invoke(Math.min(read.toDouble() / length, 1.0))
+            }
+        }
+        chunk.size = 0
+    }
+
+    /**
+     * A block of parsed rows on its way to the EDT, reused for every chunk.
+     */
+    private class Chunk(columns: Int) {
+        val x = DoubleArray(CHUNK_ROWS)
+        val y = Array(columns) { DoubleArray(CHUNK_ROWS) }
+        var size = 0
+
+        fun add(xValue: Double, row: DoubleArray) {
+            x[size] = xValue
+            for (i in row.indices) {
+                y[i][size] = row[i]
+            }
+            size++
+        }
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 64 * 1024
+        private const val CHUNK_ROWS = 4096
+        private const val MAX_FIELD_LENGTH = 64
+
+        /**
+         * Parses a decimal number with an optional sign, fraction and exponent.
+         *
+         * @return the number or NaN if the field isn't a number
+         */
+        fun parseNumber(chars: CharArray, length: Int): Double {
+            var i = 0
+            while (i < length && chars[i] == ' ') {
+                i++
+            }
+            var end = length
+            while (end > i && chars[end - 1] == ' ') {
+                end--
+            }
+            if (i == end) {
+                return Double.NaN
+            }
+            var negative = false
+            if (chars[i] == '-' || chars[i] == '+') {
+                negative = chars[i] == '-'
+                i++
+            }
+            var mantissa = 0L
+            var digits = 0
+            var scale = 0
+            var seenDigit = false
+            var seenPoint = false
+            while (i < end) {
+                val c = chars[i]
+                if (c in '0'..'9') {
+                    seenDigit = true
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (c - '0')
+                        if (mantissa != 0L) {
+                            digits++
+                        }
+                        if (seenPoint) {
+                            scale--
+                        }
+                    } else if (!seenPoint) {
+                        scale++
+                    }
+                } else if (c == '.' && !seenPoint) {
+                    seenPoint = true
+                } else {
+                    break
+                }
+                i++
+            }
+            if (!seenDigit) {
+                return Double.NaN
+            }
+            if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+                i++
+                var expNegative = false
+                if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                    expNegative = chars[i] == '-'
+                    i++
+                }
+                var exponent = 0
+                var expDigits = 0
+                while (i < end && chars[i] in '0'..'9') {
+                    exponent = Math.min(exponent * 10 + (chars[i] - '0'), 1000)
+                    expDigits++
+                    i++
+                }
+                if (expDigits == 0) {
+                    return Double.NaN
+                }
+                scale += if (expNegative) -exponent else exponent
+            }
+            if (i != end) {
+                return Double.NaN
+            }
+            var value = mantissa.toDouble()
+            if (scale < 0) {
+                value /= Math.pow(10.0, (-scale).toDouble())
+            } else if (scale > 0) {
+                value *= Math.pow(10.0, scale.toDouble())
+            }
+            return if (negative) -value else value
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.util.MathHelper
+import kotlin.math.abs
+import kotlin.math.min
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling. Reduces a series sorted by x to a given number of points while
+ * keeping its visual shape: every bucket is represented by the point that forms the largest triangle with the
+ * previously selected point and the average of the next bucket, so peaks and dips survive.
+ *
+ * Null values ([MathHelper.NULL_VALUE]) are never chosen over a real value of the same bucket, so they can't hide
+ * its peak. A bucket holding only null values keeps one so long gaps in the series remain visible.
+ */
+object Lttb {
+    /**
+     * Downsamples the points in `[from, to)` into the output arrays.
+     *
+     * @param x the x values, sorted in ascending order
+     * @param y the y values
+     * @param from the first index to sample
+     * @param to the index after the last one to sample
+     * @param threshold the maximal number of points to produce, the output arrays must be at least this big
+     * @param outX receives the sampled x values
+     * @param outY receives the sampled y values
+     * @return the number of points written to the output arrays
+     */
+    fun downsample(x: DoubleArray, y: DoubleArray, from: Int, to: Int, threshold: Int,
+                   outX: DoubleArray, outY: DoubleArray): Int {
+        val length = to - from
+        if (threshold >= length || threshold < 3) {
+            val count = min(length, outX.size)
+            System.arraycopy(x, from, outX, 0, count)
+            System.arraycopy(y, from, outY, 0, count)
+            return count
+        }
+
+        // Buckets exclude the first and last points which are always kept.
+        val every = (length - 2).toDouble() / (threshold - 2)
+        var a = from
+        var count = 0
+        outX[count] = x[a]
+        outY[count++] = y[a]
+        for (i in 0 until threshold - 2) {
+            // Average of the next bucket, the third vertex of the triangle.
+            var avgStart = from + ((i + 1) * every).toInt() + 1
+            val avgEnd = min(from + ((i + 2) * every).toInt() + 1, to)
+            if (avgStart >= avgEnd) {
+                avgStart = avgEnd - 1
+            }
+            var avgX = 0.0
+            var avgY = 0.0
+            var avgCount = 0
+            for (j in avgStart until avgEnd) {
+                if (y[j] != MathHelper.NULL_VALUE) {
+                    avgX += x[j]
+                    avgY += y[j]
+                    avgCount++
+                }
+            }
+            if (avgCount > 0) {
+                avgX /= avgCount
+                avgY /= avgCount
+            } else {
+                avgX = x[avgEnd - 1]
+                avgY = y[a]
+            }
+
+            // Pick the point of the current bucket that forms the largest triangle.
+            val rangeStart = from + (i * every).toInt() + 1
+            val rangeEnd = from + ((i + 1) * every).toInt() + 1
+            val pointAX = x[a]
+            val pointAY = y[a]
+            var maxArea = -1.0
+            var next = rangeStart
+            for (j in rangeStart until rangeEnd) {
+                if (y[j] == MathHelper.NULL_VALUE) {
+                    continue
+                }
+                val area = if (pointAY == MathHelper.NULL_VALUE) {
+                    abs(y[j] - avgY)
+                } else {
+                    abs((pointAX - avgX) * (y[j] - pointAY) - (pointAX - x[j]) * (avgY - pointAY))
+                }
+                if (area > maxArea) {
+                    maxArea = area
+                    next = j
+                }
+            }
+            outX[count] = x[next]
+            outY[count++] = y[next]
+            a = next
+        }
+        outX[count] = x[to - 1]
+        outY[count++] = y[to - 1]
+        return count
+    }
+
+    /**
+     * Returns the index of the first element in the sorted array that is greater than or equal to the value.
+     *
+     * @param values sorted values
+     * @param value the value to look for
+     * @param length the number of values in use, the array can be larger
+     * @return an index between 0 and the length
+     */
+    fun lowerBound(values: DoubleArray, value: Double, length: Int = values.size): Int {
+        var low = 0
+        var high = length
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (values[mid] < value) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+        return low
+    }
+
+    /**
+     * Returns true if the values are sorted in ascending order.
+     *
+     * @param values the values
+     * @return true if sorted
+     */
+    fun isSorted(values: DoubleArray): Boolean {
+        for (i in 1 until values.size) {
+            if (values[i] < values[i - 1]) {
+                return false
+            }
+        }
+        return true
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.util.MathHelper
+
+/**
+ * A multi-resolution aggregate of a series sorted by x. Level `k` splits the points into buckets of `2^k`
+ * points and keeps the index of the lowest and of the highest point of every bucket, so a range of the series
+ * can be reduced to about the number of pixels it's drawn on in time proportional to that number rather than
+ * to the number of points in the range.
+ *
+ * The pyramid uses about two ints per point and is extended in place when points are appended, see [update].
+ */
+class MinMaxPyramid(private val source: PointSource) {
+    // minIndex[k - 1] and maxIndex[k - 1] hold the buckets of level k.
+    private val minIndex = ArrayList<IntArray>()
+    private val maxIndex = ArrayList<IntArray>()
+    private var indexed = 0
+
+    init {
+        update()
+    }
+
+    /**
+     * The number of aggregated levels.
+     */
+    val levelCount: Int
+        get() = minIndex.size
+
+    /**
+     * Aggregates the points added to the source since the last call. Only the buckets touched by the new points
+     * are recomputed, the pyramid is rebuilt if the source got smaller.
+     */
+    fun update() {
+        val count = source.pointCount
+        if (count < indexed) {
+            minIndex.clear()
+            maxIndex.clear()
+            indexed = 0
+        }
+        if (count == indexed || count < 2) {
+            indexed = count
+            return
+        }
+        var level = 1
+        while (true) {
+            val buckets = ((count - 1) shr level) + 1
+            if (minIndex.size < level) {
+                minIndex.add(IntArray(buckets))
+                maxIndex.add(IntArray(buckets))
+            } else if (minIndex[level - 1].size < buckets) {
+                val size = Math.max(buckets, minIndex[level - 1].size * 2)
+                minIndex[level - 1] = minIndex[level - 1].copyOf(size)
+                maxIndex[level - 1] = maxIndex[level - 1].copyOf(size)
+            }
+            val mins = minIndex[level - 1]
+            val maxs = maxIndex[level - 1]
+            for (b in (indexed shr level) until buckets) {
+                val first: Int
+                val second: Int
+                val secondMax: Int
+                val firstMax: Int
+                if (level == 1) {
+                    first = b * 2
+                    second = Math.min(b * 2 + 1, count - 1)
+                    firstMax = first
+                    secondMax = second
+                } else {
+                    val childBuckets = ((count - 1) shr (level - 1)) + 1
+                    val child = b * 2
+                    val other = Math.min(child + 1, childBuckets - 1)
+                    first = minIndex[level - 2][child]
+                    second = minIndex[level - 2][other]
+                    firstMax = maxIndex[level - 2][child]
+                    secondMax = maxIndex[level - 2][other]
+                }
+                mins[b] = pick(first, second, true)
+                maxs[b] = pick(firstMax, secondMax, false)
+            }
+            if (buckets == 1) {
+                break
+            }
+            level++
+        }
+        indexed = count
+    }
+
+    /**
+     * Reduces the points in `[from, to)` to at most the given number of points, keeping the lowest and highest
+     * point of every bucket of the coarsest level that fits.
+     *
+     * @param from the first index
+     * @param to the index after the last one
+     * @param maxPoints the maximal number of points to produce, at least 2
+     * @param outX receives the x values, at least `maxPoints` long
+     * @param outY receives the y values, at least `maxPoints` long
+     * @return the number of points written
+     */
+    fun sample(from: Int, to: Int, maxPoints: Int, outX: DoubleArray, outY: DoubleArray): Int {
+        var count = 0
+        if (to - from <= maxPoints || levelCount == 0) {
+            for (i in from until Math.min(to, from + maxPoints)) {
+                outX[count] = source.xAt(i)
+                outY[count++] = source.yAt(i)
+            }
+            return count
+        }
+        var level = 1
+        while (level < levelCount && (((to - 1) shr level) - (from shr level) + 1) * 2 > maxPoints) {
+            level++
+        }
+        val mins = minIndex[level - 1]
+        val maxs = maxIndex[level - 1]
+        for (b in (from shr level)..((to - 1) shr level)) {
+            if (count + 2 > maxPoints) {
+                break
+            }
+            val low = Math.min(mins[b], maxs[b])
+            val high = Math.max(mins[b], maxs[b])
+            outX[count] = source.xAt(low)
+            outY[count++] = source.yAt(low)
+            if (high != low) {
+                outX[count] = source.xAt(high)
+                outY[count++] = source.yAt(high)
+            }
+        }
+        return count
+    }
+
+    private fun pick(a: Int, b: Int, lowest: Boolean): Int {
+        val ya = source.yAt(a)
+        val yb = source.yAt(b)
+        if (ya == MathHelper.NULL_VALUE) {
+            return b
+        }
+        if (yb == MathHelper.NULL_VALUE) {
+            return a
+        }
+        return if (lowest == yb < ya) b else a
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.util.MathHelper
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * A segment tree keeping the minimum and maximum of a growing list of values. Appending or changing a value
+ * costs O(log n) and so does querying the extent of any index range, which lets charts keep their axis bounds
+ * up to date without rescanning their data.
+ *
+ * Null values ([MathHelper.NULL_VALUE]) are ignored.
+ */
+class MinMaxTree(initialCapacity: Int = 16) {
+    private var capacity = 1
+    private var mins: DoubleArray
+    private var maxs: DoubleArray
+
+    /**
+     * The number of values in the tree.
+     */
+    var size = 0
+        private set
+
+    init {
+        while (capacity < initialCapacity) {
+            capacity = capacity shl 1
+        }
+        mins = DoubleArray(capacity * 2)
+        maxs = DoubleArray(capacity * 2)
+        mins.fill(Double.POSITIVE_INFINITY)
+        maxs.fill(Double.NEGATIVE_INFINITY)
+    }
+
+    /**
+     * The minimum of all the values, positive infinity if there are none.
+     */
+    val min: Double
+        get() = mins[1]
+
+    /**
+     * The maximum of all the values, negative infinity if there are none.
+     */
+    val max: Double
+        get() = maxs[1]
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value
+     */
+    fun add(value: Double) {
+        if (size == capacity) {
+            grow()
+        }
+        set(size++, value)
+    }
+
+    /**
+     * Replaces the value at the given index.
+     *
+     * @param index an index smaller than [size], or equal to it from [add]
+     * @param value the new value
+     */
+    operator fun set(index: Int, value: Double) {
+        var p = index + capacity
+        if (value == MathHelper.NULL_VALUE) {
+            mins[p] = Double.POSITIVE_INFINITY
+            maxs[p] = Double.NEGATIVE_INFINITY
+        } else {
+            mins[p] = value
+            maxs[p] = value
+        }
+        p = p shr 1
+        while (p >= 1) {
+            mins[p] = min(mins[p * 2], mins[p * 2 + 1])
+            maxs[p] = max(maxs[p * 2], maxs[p * 2 + 1])
+            p = p shr 1
+        }
+    }
+
+    /**
+     * Returns the minimum of the values in `[from, to)`.
+     *
+     * @param from the first index
+     * @param to the index after the last one
+     * @return the minimum or positive infinity if the range holds no value
+     */
+    fun rangeMin(from: Int, to: Int): Double {
+        var result = Double.POSITIVE_INFINITY
+        var l = max(from, 0) + capacity
+        var r = min(to, size) + capacity
+        while (l < r) {
+            if (l and 1 == 1) {
+                result = min(result, mins[l++])
+            }
+            if (r and 1 == 1) {
+                result = min(result, mins[--r])
+            }
+            l = l shr 1
+            r = r shr 1
+        }
+        return result
+    }
+
+    /**
+     * Returns the maximum of the values in `[from, to)`.
+     *
+     * @param from the first index
+     * @param to the index after the last one
+     * @return the maximum or negative infinity if the range holds no value
+     */
+    fun rangeMax(from: Int, to: Int): Double {
+        var result = Double.NEGATIVE_INFINITY
+        var l = max(from, 0) + capacity
+        var r = min(to, size) + capacity
+        while (l < r) {
+            if (l and 1 == 1) {
+                result = max(result, maxs[l++])
+            }
+            if (r and 1 == 1) {
+                result = max(result, maxs[--r])
+            }
+            l = l shr 1
+            r = r shr 1
+        }
+        return result
+    }
+
+    /**
+     * Removes all the values.
+     */
+    fun clear() {
+        mins.fill(Double.POSITIVE_INFINITY)
+        maxs.fill(Double.NEGATIVE_INFINITY)
+        size = 0
+    }
+
+    private fun grow() {
+        val oldCapacity = capacity
+        val oldMins = mins
+        val oldMaxs = maxs
+        capacity = oldCapacity shl 1
+        mins = DoubleArray(capacity * 2)
+        maxs = DoubleArray(capacity * 2)
+        mins.fill(Double.POSITIVE_INFINITY)
+        maxs.fill(Double.NEGATIVE_INFINITY)
+        System.arraycopy(oldMins, oldCapacity, mins, capacity, oldCapacity)
+        System.arraycopy(oldMaxs, oldCapacity, maxs, capacity, oldCapacity)
+        for (p in capacity - 1 downTo 1) {
+            mins[p] = min(mins[p * 2], mins[p * 2 + 1])
+            maxs[p] = max(maxs[p * 2], maxs[p * 2 + 1])
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.XYSeries
+import com.codename1.charts.util.MathHelper
+import java.util.*
+
+/**
+ * Finds the point of a series closest to a position, for hit testing and tooltips. Series sorted by x are
+ * searched with a binary search on x, other series get a KD-tree. The index of a series is rebuilt lazily the
+ * first time it's queried after the series changed.
+ *
+ * Distances are measured on screen: the query takes the number of pixels per unit on each axis so that points
+ * are compared the way the user sees them. Not thread safe, query it from the EDT.
+ */
+class PointIndex {
+    private val indexes = HashMap<XYSeries, SeriesIndex>()
+    private var bestIndex = -1
+    private var bestDistance = 0.0
+
+    /**
+     * Returns the index of the point closest to the given position.
+     *
+     * @param series the series to search
+     * @param x the x value of the position
+     * @param y the y value of the position
+     * @param scaleX the pixels per unit on the x axis
+     * @param scaleY the pixels per unit on the y axis
+     * @param maxDistance the maximal distance in pixels
+     * @return the point index or -1 if no point is close enough
+     */
+    fun nearest(series: XYSeries, x: Double, y: Double, scaleX: Double, scaleY: Double, maxDistance: Double): Int {
+        val index = indexes.getOrPut(series) { SeriesIndex() }
+        index.update(series)
+        bestIndex = -1
+        bestDistance = maxDistance * maxDistance
+        if (index.sorted) {
+            searchSorted(index, x, y, Math.abs(scaleX), Math.abs(scaleY))
+        } else {
+            searchTree(index, 0, index.size, 0, x, y, Math.abs(scaleX), Math.abs(scaleY))
+        }
+        return if (bestIndex < 0) -1 else index.order[bestIndex]
+    }
+
+    /**
+     * Releases the index of a series that's no longer displayed.
+     */
+    fun remove(series: XYSeries) {
+        indexes.remove(series)
+    }
+
+    private fun searchSorted(index: SeriesIndex, x: Double, y: Double, scaleX: Double, scaleY: Double) {
+        val xs = index.xs
+        var low = 0
+        var high = index.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (xs[mid] < x) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+
+        // Walk away from x on both sides until the horizontal distance alone exceeds the best match.
+        var right = low
+        while (right < index.size) {
+            val dx = (xs[right] - x) * scaleX
+            if (dx * dx >= bestDistance) {
+                break
+            }
+            check(index, right, x, y, scaleX, scaleY)
+            right++
+        }
+        var left = low - 1
+        while (left >= 0) {
+            val dx = (x - xs[left]) * scaleX
+            if (dx * dx >= bestDistance) {
+                break
+            }
+            check(index, left, x, y, scaleX, scaleY)
+            left--
+        }
+    }
+
+    private fun searchTree(index: SeriesIndex, from: Int, to: Int, depth: Int, x: Double, y: Double,
+                           scaleX: Double, scaleY: Double) {
+        if (from >= to) {
+            return
+        }
+        val mid = (from + to) ushr 1
+        check(index, mid, x, y, scaleX, scaleY)
+        val diff = if (depth and 1 == 0) (x - index.xs[mid]) * scaleX else (y - index.ys[mid]) * scaleY
+        if (diff < 0) {
+            searchTree(index, from, mid, depth + 1, x, y, scaleX, scaleY)
+            if (diff * diff < bestDistance) {
+                searchTree(index, mid + 1, to, depth + 1, x, y, scaleX, scaleY)
+            }
+        } else {
+            searchTree(index, mid + 1, to, depth + 1, x, y, scaleX, scaleY)
+            if (diff * diff < bestDistance) {
+                searchTree(index, from, mid, depth + 1, x, y, scaleX, scaleY)
+            }
+        }
+    }
+
+    private fun check(index: SeriesIndex, i: Int, x: Double, y: Double, scaleX: Double, scaleY: Double) {
+        val dx = (index.xs[i] - x) * scaleX
+        val dy = (index.ys[i] - y) * scaleY
+        val distance = dx * dx + dy * dy
+        if (distance < bestDistance) {
+            bestDistance = distance
+            bestIndex = i
+        }
+    }
+
+    /**
+     * The points of a series without the null values, sorted by x or arranged as an implicit KD-tree where the
+     * middle of every range splits it on x at even depths and on y at odd depths.
+     */
+    private class SeriesIndex {
+        private val stamp = SeriesStamp()
+        var size = 0
+        var sorted = true
+        var xs = DoubleArray(0)
+        var ys = DoubleArray(0)
+
+        // The series index of every point.
+        var order = IntArray(0)
+
+        fun update(series: XYSeries) {
+            if (!stamp.update(series)) {
+                return
+            }
+            val n = series.itemCount
+            if (xs.size < n) {
+                xs = DoubleArray(n)
+                ys = DoubleArray(n)
+                order = IntArray(n)
+            }
+            size = 0
+            sorted = true
+            for (i in 0 until n) {
+                val y = series.getY(i)
+                if (y == MathHelper.NULL_VALUE) {
+                    continue
+                }
+                val x = series.getX(i)
+                if (size > 0 && x < xs[size - 1]) {
+                    sorted = false
+                }
+                xs[size] = x
+                ys[size] = y
+                order[size++] = i
+            }
+            if (!sorted) {
+                build(0, size, 0)
+            }
+        }
+
+        private fun build(from: Int, to: Int, depth: Int) {
+            if (to - from <= 1) {
+                return
+            }
+            val mid = (from + to) ushr 1
+            select(from, to - 1, mid, if (depth and 1 == 0) xs else ys)
+            build(from, mid, depth + 1)
+            build(mid + 1, to, depth + 1)
+        }
+
+        /**
+         * Moves the k-th smallest key of `[left, right]` to k with the smaller keys before it and the larger
+         * after it.
+         */
+        private fun select(left: Int, right: Int, k: Int, keys: DoubleArray) {
+            var l = left
+            var r = right
+            while (l < r) {
+                val pivot = keys[(l + r) ushr 1]
+                var i = l
+                var j = r
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++
+                    }
+                    while (keys[j] > pivot) {
+                        j--
+                    }
+                    if (i <= j) {
+                        swap(i++, j--)
+                    }
+                }
+                if (k <= j) {
+                    r = j
+                } else if (k >= i) {
+                    l = i
+                } else {
+                    return
+                }
+            }
+        }
+
+        private fun swap(a: Int, b: Int) {
+            var t = xs[a]
+            xs[a] = xs[b]
+            xs[b] = t
+            t = ys[a]
+            ys[a] = ys[b]
+            ys[b] = t
+            val o = order[a]
+            order[a] = order[b]
+            order[b] = o
+        }
+    }
+}
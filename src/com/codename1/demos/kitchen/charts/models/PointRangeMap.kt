@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import java.util.*
+
+/**
+ * A read only [SortedMap] view of an index range of a [PointSource]. Series that keep their points outside of
+ * the [com.codename1.charts.models.XYSeries] map return it from `getRange` so the charts can draw them without
+ * copying anything.
+ *
+ * The entry iterator reuses a single entry, the charts read the key and value of every entry before moving to
+ * the next one.
+ */
+class PointRangeMap(private val source: PointSource, private val from: Int, private val to: Int) :
+        java.util.AbstractMap<Double, Double>(), SortedMap<Double, Double> {
+
+    override val size: Int
+        get() = to - from
+
+    override val entries: MutableSet<MutableMap.MutableEntry<Double, Double>>
+        get() = Entries()
+
+    override fun containsKey(key: Double): Boolean {
+        val index = lowerBound(source, key, from, to)
+        return index < to && source.xAt(index) == key
+    }
+
+    override fun get(key: Double): Double? {
+        val index = lowerBound(source, key, from, to)
+        return if (index < to && source.xAt(index) == key) source.yAt(index) else null
+    }
+
+    override fun comparator(): Comparator<in Double>? = null
+
+    override fun firstKey(): Double {
+        if (from >= to) {
+            throw NoSuchElementException()
+        }
+        return source.xAt(from)
+    }
+
+    override fun lastKey(): Double {
+        if (from >= to) {
+            throw NoSuchElementException()
+        }
+        return source.xAt(to - 1)
+    }
+
+    override fun subMap(fromKey: Double, toKey: Double): SortedMap<Double, Double> {
+        val start = lowerBound(source, fromKey, from, to)
+        return PointRangeMap(source, start, Math.max(start, lowerBound(source, toKey, from, to)))
+    }
+
+    override fun headMap(toKey: Double): SortedMap<Double, Double> {
+        return PointRangeMap(source, from, lowerBound(source, toKey, from, to))
+    }
+
+    override fun tailMap(fromKey: Double): SortedMap<Double, Double> {
+        return PointRangeMap(source, lowerBound(source, fromKey, from, to), to)
+    }
+
+    private inner class Entries : java.util.AbstractSet<MutableMap.MutableEntry<Double, Double>>() {
+        override val size: Int
+            get() = to - from
+
+        override fun iterator(): MutableIterator<MutableMap.MutableEntry<Double, Double>> = EntryIterator()
+    }
+
+    private inner class EntryIterator : MutableIterator<MutableMap.MutableEntry<Double, Double>>,
+            MutableMap.MutableEntry<Double, Double> {
+        private var index = from - 1
+
+        override val key: Double
+            get() = source.xAt(index)
+
+        override val value: Double
+            get() = source.yAt(index)
+
+        override fun hasNext(): Boolean = index + 1 < to
+
+        override fun next(): MutableMap.MutableEntry<Double, Double> {
+            if (index + 1 >= to) {
+                throw NoSuchElementException()
+            }
+            index++
+            return this
+        }
+
+        override fun setValue(newValue: Double): Double {
+            throw UnsupportedOperationException()
+        }
+
+        override fun remove() {
+            throw UnsupportedOperationException()
+        }
+    }
+
+    companion object {
+        /**
+         * Returns the first index in `[from, to)` whose x value is greater than or equal to the given value, or
+         * `to` if there is none.
+         */
+        fun lowerBound(source: PointSource, value: Double, from: Int, to: Int): Int {
+            var low = from
+            var high = to
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (source.xAt(mid) < value) {
+                    low = mid + 1
+                } else {
+                    high = mid
+                }
+            }
+            return low
+        }
+
+        /**
+         * Returns the first index in `[from, to)` whose x value is greater than the given value, or `to` if there
+         * is none.
+         */
+        fun upperBound(source: PointSource, value: Double, from: Int, to: Int): Int {
+            var low = from
+            var high = to
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (source.xAt(mid) <= value) {
+                    low = mid + 1
+                } else {
+                    high = mid
+                }
+            }
+            return low
+        }
+
+        /**
+         * Implements `XYSeries.getRange` for a point source.
+         *
+         * @param source the points
+         * @param start the start x value
+         * @param stop the stop x value
+         * @param beforeAfterPoints if the point before the start and the point after the stop should be included
+         * so lines leave the plot area correctly
+         * @return a view of the points in the range
+         */
+        fun range(source: PointSource, start: Double, stop: Double, beforeAfterPoints: Boolean): SortedMap<Double, Double> {
+            val count = source.pointCount
+            var first = lowerBound(source, start, 0, count)
+            var last = upperBound(source, stop, first, count)
+            if (beforeAfterPoints) {
+                first = Math.max(first - 1, 0)
+                last = Math.min(last + 1, count)
+            }
+            return PointRangeMap(source, first, last)
+        }
+
+        /**
+         * Implements `XYSeries.getIndexForKey` for a point source, returns `-(insertion point) - 1` if there is no
+         * point with the given x value.
+         */
+        fun indexOf(source: PointSource, key: Double): Int {
+            val count = source.pointCount
+            val index = lowerBound(source, key, 0, count)
+            return if (index < count && source.xAt(index) == key) index else -index - 1
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.TimeSeries
+import com.codename1.charts.util.MathHelper
+import java.util.*
+
+/**
+ * A time series holding the latest [capacity] points in a primitive ring buffer, older points are dropped as
+ * new ones arrive so the memory use stays the same however long the series is fed.
+ *
+ * Background producers hand their samples over with [offer], the samples are moved into the series on the EDT
+ * by [drain] so the chart never sees the series change while it's painting. Points can also be inserted and
+ * removed like in any other series, inserting into a full series drops the oldest point.
+ */
+class RingTimeSeries(title: String?, val capacity: Int) : TimeSeries(title), PointSource, Versioned {
+    private val times = LongArray(capacity)
+    private val values = DoubleArray(capacity)
+    // Indexed by slot, not by point index.
+    private val extent = MinMaxTree(capacity)
+
+    // Slot of the oldest point.
+    private var head = 0
+    private var count = 0
+
+    private val pendingTimes = LongArray(capacity)
+    private val pendingValues = DoubleArray(capacity)
+    private var pendingHead = 0
+    private var pendingCount = 0
+    private val pendingLock = Any()
+
+    @Volatile
+    override var version = 0
+        private set
+
+    override val pointCount: Int
+        get() = count
+
+    override fun xAt(index: Int): Double = times[slot(index)].toDouble()
+
+    override fun yAt(index: Int): Double = values[slot(index)]
+
+    /**
+     * Queues a sample, can be called from any thread. If the EDT falls behind by more than [capacity] samples
+     * the oldest queued ones are dropped.
+     *
+     * @param time the sample time in milliseconds, not earlier than the previous sample
+     * @param value the sample value
+     */
+    fun offer(time: Long, value: Double) {
+        synchronized(pendingLock) {
+            val tail = (pendingHead + pendingCount) % capacity
+            pendingTimes[tail] = time
+            pendingValues[tail] = value
+            if (pendingCount == capacity) {
+                pendingHead = (pendingHead + 1) % capacity
+            } else {
+                pendingCount++
+            }
+        }
+    }
+
+    /**
+     * Moves the queued samples into the series, should be called on the EDT.
+     *
+     * @return true if the series changed
+     */
+    fun drain(): Boolean {
+        synchronized(pendingLock) {
+            if (pendingCount == 0) {
+                return false
+            }
+            for (i in 0 until pendingCount) {
+                val p = (pendingHead + i) % capacity
+                append(pendingTimes[p], pendingValues[p])
+            }
+            pendingHead = 0
+            pendingCount = 0
+        }
+        return true
+    }
+
+    /**
+     * Appends a point replacing the oldest one once the series is full.
+     *
+     * @param time the point time in milliseconds, not earlier than the previous point
+     * @param value the point value
+     */
+    @Synchronized
+    fun append(time: Long, value: Double) {
+        if (count == capacity) {
+            head = slot(1)
+            count--
+        }
+        val s = slot(count)
+        count++
+        store(s, time, value)
+    }
+
+    override fun add(x: Double, y: Double) {
+        add(count, x, y)
+    }
+
+    /**
+     * Adds a point, the points are kept sorted by time so the index is only a hint like in
+     * [ColumnarXYSeries.add]. If the series is full the oldest point is dropped, which is the new point itself
+     * if it's older than every other one.
+     */
+    @Synchronized
+    override fun add(index: Int, x: Double, y: Double) {
+        val fits = index in 0..count && (index == 0 || xAt(index - 1) <= x) && (index == count || x <= xAt(index))
+        var position = if (fits) index else PointRangeMap.upperBound(this, x, 0, count)
+        if (position == count) {
+            append(x.toLong(), y)
+            return
+        }
+        if (count == capacity) {
+            if (position == 0) {
+                return
+            }
+            head = slot(1)
+            count--
+            position--
+        }
+        for (i in count downTo position + 1) {
+            val from = slot(i - 1)
+            store(slot(i), times[from], values[from])
+        }
+        count++
+        store(slot(position), x.toLong(), y)
+    }
+
+    /**
+     * Removes the point at the given index, the later points move down by one.
+     */
+    @Synchronized
+    override fun remove(index: Int) {
+        for (i in index until count - 1) {
+            val from = slot(i + 1)
+            store(slot(i), times[from], values[from])
+        }
+        count--
+        extent[slot(count)] = MathHelper.NULL_VALUE
+        version++
+    }
+
+    @Synchronized
+    override fun clear() {
+        super.clear()
+        head = 0
+        count = 0
+        extent.clear()
+        version++
+    }
+
+    @Synchronized
+    override fun clearSeriesValues() {
+        super.clearSeriesValues()
+        head = 0
+        count = 0
+        extent.clear()
+        version++
+    }
+
+    @Synchronized
+    override fun getItemCount(): Int = count
+
+    @Synchronized
+    override fun getX(index: Int): Double = xAt(index)
+
+    @Synchronized
+    override fun getY(index: Int): Double = yAt(index)
+
+    @Synchronized
+    override fun getMinX(): Double = if (count == 0) Double.MAX_VALUE else xAt(0)
+
+    @Synchronized
+    override fun getMaxX(): Double = if (count == 0) -Double.MAX_VALUE else xAt(count - 1)
+
+    @Synchronized
+    override fun getMinY(): Double = if (extent.min == Double.POSITIVE_INFINITY) Double.MAX_VALUE else extent.min
+
+    @Synchronized
+    override fun getMaxY(): Double = if (extent.max == Double.NEGATIVE_INFINITY) -Double.MAX_VALUE else extent.max
+
+    override fun getIndexForKey(key: Double): Int = PointRangeMap.indexOf(this, key)
+
+    @Synchronized
+    override fun getRange(start: Double, stop: Double, beforeAfterPoints: Boolean): SortedMap<Double, Double> {
+        return PointRangeMap.range(this, start, stop, beforeAfterPoints)
+    }
+
+    // Writes a point into a slot, the extent grows while the slots are used for the first time.
+    private fun store(s: Int, time: Long, value: Double) {
+        version++
+        times[s] = time
+        values[s] = value
+        if (s < extent.size) {
+            extent[s] = value
+        } else {
+            extent.add(value)
+        }
+    }
+
+    private fun slot(index: Int): Int {
+        val s = head + index
+        return if (s >= capacity) s - capacity else s
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.XYSeries
+
+/**
+ * Replaces the point at the given index, in place for a [ColumnarXYSeries] and by removing and adding the point
+ * for the other series.
+ *
+ * @param index the point index
+ * @param x the new x value
+ * @param y the new y value
+ */
+fun XYSeries.setPoint(index: Int, x: Double, y: Double) {
+    if (this is ColumnarXYSeries) {
+        set(index, x, y)
+    } else {
+        synchronized(this) {
+            remove(index)
+            add(index, x, y)
+        }
+    }
+}
+
+/**
+ * Replaces the annotation at the given index, in place for a [ColumnarXYSeries] and by removing and adding the
+ * annotation for the other series.
+ *
+ * @param index the annotation index
+ * @param annotation the annotation text
+ * @param x the annotation x value
+ * @param y the annotation y value
+ */
+fun XYSeries.setAnnotation(index: Int, annotation: String?, x: Double, y: Double) {
+    if (this is ColumnarXYSeries) {
+        setAnnotation(index, annotation, x, y)
+    } else {
+        removeAnnotation(index)
+        addAnnotation(annotation, index, x, y)
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.XYSeries
+
+/**
+ * Remembers the state of a series to tell whether data derived from it is stale. [Versioned] series are
+ * compared by version, other series by their size and bounds.
+ */
+class SeriesStamp {
+    private var version = -1
+    private var size = -1
+    private var minX = 0.0
+    private var maxX = 0.0
+    private var minY = 0.0
+    private var maxY = 0.0
+
+    /**
+     * Records the current state of the series.
+     *
+     * @param series the series
+     * @return true if the series changed since the previous call
+     */
+    fun update(series: XYSeries): Boolean {
+        val n = series.itemCount
+        if (series is Versioned) {
+            if (series.version == version && n == size) {
+                return false
+            }
+            version = series.version
+        } else if (n == size && series.minX == minX && series.maxX == maxX && series.minY == minY &&
+                series.maxY == maxY) {
+            return false
+        }
+        size = n
+        minX = series.minX
+        maxX = series.maxX
+        minY = series.minY
+        maxY = series.maxY
+        return true
+    }
+}
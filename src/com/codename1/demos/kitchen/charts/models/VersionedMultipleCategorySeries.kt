@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+import com.codename1.charts.models.MultipleCategorySeries
+
+/**
+ * A [MultipleCategorySeries] counting its changes, see [Versioned].
+ */
+class VersionedMultipleCategorySeries(title: String?) : MultipleCategorySeries(title), Versioned {
+    override var version = 0
+        private set
+
+    override fun add(titles: Array<String?>?, values: DoubleArray?) {
+        version++
+        super.add(titles, values)
+    }
+
+    override fun add(category: String?, titles: Array<String?>?, values: DoubleArray?) {
+        version++
+        super.add(category, titles, values)
+    }
+
+    override fun remove(index: Int) {
+        version++
+        super.remove(index)
+    }
+
+    override fun clear() {
+        version++
+        super.clear()
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.charts.models
+
+/**
+ * Tracks the x and y bounds of a series point by point so axis ranges can be updated in O(log n) per changed
+ * point, for the whole series or for any window of it.
+ */
+class XYExtent(initialCapacity: Int = 16) {
+    private val x = MinMaxTree(initialCapacity)
+    private val y = MinMaxTree(initialCapacity)
+
+    // The x values as given, the trees only answer range queries.
+    private var xValues = DoubleArray(Math.max(initialCapacity, 1))
+
+    val size: Int
+        get() = x.size
+
+    val minX: Double
+        get() = x.min
+
+    val maxX: Double
+        get() = x.max
+
+    val minY: Double
+        get() = y.min
+
+    val maxY: Double
+        get() = y.max
+
+    /**
+     * Appends a point.
+     */
+    fun add(xValue: Double, yValue: Double) {
+        if (x.size == xValues.size) {
+            xValues = xValues.copyOf(xValues.size * 2)
+        }
+        xValues[x.size] = xValue
+        x.add(xValue)
+        y.add(yValue)
+    }
+
+    /**
+     * Replaces the point at the given index.
+     */
+    fun set(index: Int, xValue: Double, yValue: Double) {
+        xValues[index] = xValue
+        x[index] = xValue
+        y[index] = yValue
+    }
+
+    /**
+     * Returns the x value of the point at the given index.
+     */
+    fun x(index: Int): Double = xValues[index]
+
+    fun minX(from: Int, to: Int): Double = x.rangeMin(from, to)
+
+    fun maxX(from: Int, to: Int): Double = x.rangeMax(from, to)
+
+    fun minY(from: Int, to: Int): Double = y.rangeMin(from, to)
+
+    fun maxY(from: Int, to: Int): Double = y.rangeMax(from, to)
+
+    fun clear() {
+        x.clear()
+        y.clear()
+    }
+
+    /**
+     * True if the tracked series holds no non null point.
+     */
+    val isEmpty: Boolean
+        get() = x.min > x.max || y.min > y.max
+}
@@ -39,6 +39,64 @@ import com.codename1.ui.plaf.UIManager
  */
 class XYMultipleSeriesEditor : Container(BorderLayout()) {
     private var xy: XYMultipleSeriesDataset? = null
+    private var batchDepth = 0
+    private var batchChanged = false
+
+    /**
+     * Invoked when the dataset is changed, typically to repaint the chart. Within a batch it's invoked once when
+     * the batch is committed.
+     */
+    var chartChanged: (() -> Unit)? = null
+
+    /**
+     * Starts a batch, changes made until the matching [commit] notify [chartChanged] once. Batches can be nested.
+     */
+    fun beginBatch() {
+        batchDepth++
+    }
+
+    /**
+     * Ends the batch started by [beginBatch].
+     */
+    fun commit() {
+        if (batchDepth > 0 && --batchDepth == 0 && batchChanged) {
+            batchChanged = false
+            chartChanged?.invoke()
+        }
+    }
+
+    /**
+     * Applies the given edits as a single batch.
+     *
+     * @param edits the edits
+     */
+    fun batch(edits: () -> Unit) {
+        beginBatch()
+        try {
+            edits()
+        } finally {
+            commit()
+        }
+    }
+
+    /**
+     * Runs a change made by one of the series editors inside a batch and marks the dataset as changed.
+     */
+    private fun applyEdit(changes: () -> Unit) {
+        batch {
+            changes()
+            changed()
+        }
+    }
+
+    private fun changed() {
+        if (batchDepth > 0) {
+            batchChanged = true
+        } else {
+            chartChanged?.invoke()
+        }
+    }
+
     fun init(xy: XYMultipleSeriesDataset?) {
         val acc = Accordion()
         add(BorderLayout.CENTER, acc)
@@ -53,7 +111,7 @@ class XYMultipleSeriesEditor : Container(BorderLayout()) {
         val add = Button(addImage)
         add(BorderLayout.SOUTH, add)
         add.addActionListener { e: ActionEvent? ->
-            val x = XYSeries("New Series")
+            val x = ColumnarXYSeries("New Series")
             addSeries(x, acc, removeImage)
             acc.animateLayout(200)
         }
@@ -61,12 +119,13 @@ class XYMultipleSeriesEditor : Container(BorderLayout()) {
 
     private fun addSeries(xx: XYSeries, acc: Accordion, removeImage: FontImage) {
         val edit = XYSeriesEditor()
-        edit.init(xx) { title: String? -> acc.setHeader(title, edit) }
+        edit.init(xx, { title: String? -> acc.setHeader(title, edit) }, ::applyEdit)
         edit.isScrollableY = false;
         edit.isScrollableX = false;
         val remove = Button(removeImage)
         remove.addActionListener { e: ActionEvent? ->
             xy!!.removeSeries(xx)
+            changed()
             acc.removeContent(edit)
             acc.animateLayout(200)
         }
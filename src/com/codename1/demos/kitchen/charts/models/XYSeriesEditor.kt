@@ -23,9 +23,14 @@
 package com.codename1.demos.kitchen.charts.models
 
 import com.codename1.charts.models.XYSeries
+import com.codename1.charts.util.MathHelper
+import com.codename1.io.Util
 import com.codename1.ui.Button
+import com.codename1.ui.Command
 import com.codename1.ui.Container
+import com.codename1.ui.Dialog
 import com.codename1.ui.Label
+import com.codename1.ui.TextArea
 import com.codename1.ui.TextField
 import com.codename1.ui.events.ActionEvent
 import com.codename1.ui.events.DataChangedListener
@@ -41,7 +46,13 @@ import com.codename1.ui.table.TableModel
  */
 class XYSeriesEditor : Container(BoxLayout.y()) {
     private var xy: XYSeries? = null
-    fun init(xy: XYSeries, titleChanged: (String?)-> Unit) {
+
+    /**
+     * @param xy the series to edit
+     * @param titleChanged invoked when the series title is edited
+     * @param edit runs a change to the points or annotations, typically inside a batch that notifies the chart
+     */
+    fun init(xy: XYSeries, titleChanged: (String?)-> Unit, edit: (() -> Unit) -> Unit = { it() }) {
         isScrollableY = true
         this.xy = xy
         val title = TextField(xy.title, "Series Title", 20, TextField.ANY)
@@ -76,22 +87,16 @@ class XYSeriesEditor : Container(BoxLayout.y()) {
 
             override fun setValueAt(row: Int, column: Int, o: Any) {
                 when (column) {
-                    0 -> {
-                        val y = xy.getY(row)
-                        xy.remove(row)
-                        xy.add(row, o.toString().toDouble(), y)
-                    }
-                    1 -> {
-                        val x = xy.getX(row)
-                        xy.remove(row)
-                        xy.add(row, x, o.toString().toDouble())
-                    }
+                    0 -> edit { xy.setPoint(row, o.toString().toDouble(), xy.getY(row)) }
+                    1 -> edit { xy.setPoint(row, xy.getX(row), o.toString().toDouble()) }
                 }
             }
 
             override fun addDataChangeListener(d: DataChangedListener) {}
             override fun removeDataChangeListener(d: DataChangedListener) {}
-        }) { row: Int, column: Int -> xy.remove(row) }
+        }) { row: Int, column: Int ->
+            edit { xy.remove(row) }
+        }
         series.isScrollableY = false
         series.isScrollableX = false
         val annotations: Table = RemoveTable(object : TableModel {
@@ -125,40 +130,88 @@ class XYSeriesEditor : Container(BoxLayout.y()) {
                 val x = xy.getAnnotationX(row)
                 val y = xy.getAnnotationY(row)
                 when (column) {
-                    0 -> {
-                        xy.removeAnnotation(row)
-                        xy.addAnnotation(o.toString(), row, x, y)
-                    }
-                    1 -> {
-                        xy.removeAnnotation(row)
-                        xy.addAnnotation(a, row, o.toString().toDouble(), y)
-                    }
-                    2 -> {
-                        xy.removeAnnotation(row)
-                        xy.addAnnotation(a, row, x, o.toString().toDouble())
-                    }
+                    0 -> edit { xy.setAnnotation(row, o.toString(), x, y) }
+                    1 -> edit { xy.setAnnotation(row, a, o.toString().toDouble(), y) }
+                    2 -> edit { xy.setAnnotation(row, a, x, o.toString().toDouble()) }
                 }
             }
 
             override fun addDataChangeListener(d: DataChangedListener) {}
             override fun removeDataChangeListener(d: DataChangedListener) {}
-        }) { row: Int, column: Int -> xy.removeAnnotation(row) }
+        }) { row: Int, column: Int ->
+            edit { xy.removeAnnotation(row) }
+        }
         annotations.isScrollableY = false
         annotations.isScrollableX = false
         val addSeries = Button("+")
         val addAnnotation = Button("+")
         addSeries.addActionListener { e: ActionEvent? ->
-            xy.add(0.0, 0.0)
+            edit { xy.add(0.0, 0.0) }
             series.model = series.model
         }
         addAnnotation.addActionListener { e: ActionEvent? ->
-            xy.add(0.0, 0.0)
+            edit { xy.add(0.0, 0.0) }
             series.model = series.model
         }
-        add("Series Title").add(title).add(BorderLayout.center(Label("Series")).add(BorderLayout.EAST, addSeries)).add(series).add(BorderLayout.center(Label("Annotations")).add(BorderLayout.EAST, addAnnotation)).add(annotations)
+        val pasteCsv = Button("CSV")
+        pasteCsv.addActionListener { e: ActionEvent? ->
+            val text = TextArea(8, 20)
+            val ok = Command("OK")
+            if (Dialog.show("Paste x,y rows", text, ok, Command("Cancel")) == ok) {
+                // All the pasted rows are a single edit, the chart is notified once.
+                edit { appendCsv(xy, text.text) }
+                series.model = series.model
+            }
+        }
+        val seriesActions = BoxLayout.encloseX(pasteCsv, addSeries)
+        add("Series Title").add(title).add(BorderLayout.center(Label("Series")).add(BorderLayout.EAST, seriesActions)).add(series).add(BorderLayout.center(Label("Annotations")).add(BorderLayout.EAST, addAnnotation)).add(annotations)
     }
 
     companion object {
+        /**
+         * Appends the "x,y" rows of the given text to the series, rows whose x value isn't a number are skipped.
+         */
+        private fun appendCsv(xy: XYSeries, text: String) {
+            var x = DoubleArray(16)
+            var y = DoubleArray(16)
+            var count = 0
+            val field = CharArray(64)
+            for (line in Util.split(text, "\n")) {
+                val comma = line.indexOf(',')
+                val xText = if (comma < 0) line else line.substring(0, comma)
+                val yText = if (comma < 0) "" else line.substring(comma + 1)
+                val xValue = parse(xText, field)
+                if (xValue.isNaN()) {
+                    continue
+                }
+                val yValue = parse(yText, field)
+                if (count == x.size) {
+                    x = x.copyOf(count * 2)
+                    y = y.copyOf(count * 2)
+                }
+                x[count] = xValue
+                y[count++] = if (yValue.isNaN()) MathHelper.NULL_VALUE else yValue
+            }
+            if (xy is ColumnarXYSeries) {
+                xy.addAll(x, y, 0, count)
+            } else {
+                for (i in 0 until count) {
+                    xy.add(x[i], y[i])
+                }
+            }
+        }
+
+        private fun parse(text: String, field: CharArray): Double {
+            val value = text.trim()
+            if (value.length > field.size) {
+                return Double.NaN
+            }
+            for (i in value.indices) {
+                field[i] = value[i]
+            }
+            return CsvSeriesImporter.parseNumber(field, value.length)
+        }
+
         private val SERIES_COLUMN_NAMES = arrayOf("X", "Y", "Remove")
         private val ANNOTATION_COLUMN_NAMES = arrayOf("Annotation", "X", "Y", "Remove")
     }
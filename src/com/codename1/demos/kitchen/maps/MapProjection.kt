@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen.maps
+
+import com.codename1.googlemaps.MapBatch
+import com.codename1.googlemaps.MapContainer
+import com.codename1.googlemaps.WebMercator
+import com.codename1.maps.Coord
+import com.codename1.maps.MapListener
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.geom.Point
+import com.codename1.util.MathUtil
+import kotlin.math.abs
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.roundToInt
+import kotlin.math.sqrt
+
+/**
+ * Converts between map coordinates and positions on a [MapContainer] in Java, using the [WebMercator]
+ * projection and the last known camera state instead of asking the native map, which blocks the EDT on some
+ * platforms (Android waits for the UI thread on every call).
+ *
+ * The camera is read from the map once after it moved, the first time a conversion is needed. The size of the
+ * world in pixels is estimated from the display density and calibrated once against the native projection, see
+ * [validate]. When rotate gestures are enabled the bearing of the map isn't known, the conversions are then
+ * delegated to the native map through [MapBatch], one native call per batch of points.
+ *
+ * @param map the map
+ * @param batch the batch calls of the map
+ */
+class MapProjection(private val map: MapContainer, private val batch: MapBatch = MapBatch(map)) : MapListener {
+    /**
+     * The maximal distance in pixels between a Java and a native projection that [validate] accepts.
+     */
+    var tolerance = CN.convertToPixels(1f).toDouble()
+
+    // The map tile size in pixels, Google maps uses tiles of 256 density independent pixels.
+    private var tileSize = 256 * CN.convertToPixels(25.4f) / 160.0
+    private var centerX = 0.5
+    private var centerY = 0.5
+    private var worldSize = tileSize
+    private var stale = true
+    private var calibrated = false
+    private val singleLat = DoubleArray(1)
+    private val singleLon = DoubleArray(1)
+    private val singleXY = IntArray(2)
+
+    init {
+        map.addMapListener(this)
+    }
+
+    override fun mapPositionUpdated(source: Component?, zoom: Int, center: Coord?) {
+        stale = true
+    }
+
+    /**
+     * Stops following the camera.
+     */
+    fun dispose() {
+        map.removeMapListener(this)
+    }
+
+    /**
+     * Returns the position of a coordinate relative to the map component.
+     *
+     * @param lat the latitude
+     * @param lon the longitude
+     * @return the x/y position in component relative position
+     */
+    fun toScreen(lat: Double, lon: Double): Point {
+        if (map.isRotateGestureEnabled) {
+            singleLat[0] = lat
+            singleLon[0] = lon
+            val xy = batch.project(singleLat, singleLon, 1) ?: return map.getScreenCoordinate(lat, lon)
+            return Point(xy[0], xy[1])
+        }
+        updateCamera()
+        var dx = WebMercator.x(lon) - centerX
+        // Take the shortest way around the world.
+        dx -= floor(dx + 0.5)
+        val x = map.width / 2.0 + dx * worldSize
+        val y = map.height / 2.0 + (WebMercator.y(lat) - centerY) * worldSize
+        return Point(x.roundToInt(), y.roundToInt())
+    }
+
+    /**
+     * Converts a batch of coordinates to positions relative to the map component, making at most one native call.
+     *
+     * @param lat the latitudes
+     * @param lon the longitudes
+     * @param count the number of coordinates to convert from the arrays
+     * @param xy receives the interleaved x/y positions
+     */
+    fun toScreen(lat: DoubleArray, lon: DoubleArray, count: Int, xy: IntArray) {
+        if (map.isRotateGestureEnabled) {
+            val coords = ArrayList<Coord>(count)
+            for (i in 0 until count) {
+                coords.add(Coord(lat[i], lon[i]))
+            }
+            val points = batch.getScreenCoordinates(coords)
+            for (i in 0 until count) {
+                xy[i * 2] = points[i].x
+                xy[i * 2 + 1] = points[i].y
+            }
+            return
+        }
+        for (i in 0 until count) {
+            val p = toScreen(lat[i], lon[i])
+            xy[i * 2] = p.x
+            xy[i * 2 + 1] = p.y
+        }
+    }
+
+    /**
+     * Returns the coordinate at a position relative to the map component.
+     *
+     * @param x the x position in component relative coordinate system
+     * @param y the y position in component relative coordinate system
+     * @return a lat/lon coordinate
+     */
+    fun toCoord(x: Int, y: Int): Coord {
+        if (map.isRotateGestureEnabled) {
+            singleXY[0] = x
+            singleXY[1] = y
+            val coords = batch.unproject(singleXY, 1) ?: return map.getCoordAtPosition(x, y)
+            return Coord(coords[0], coords[1])
+        }
+        updateCamera()
+        var wx = centerX + (x - map.width / 2.0) / worldSize
+        wx -= floor(wx)
+        val wy = centerY + (y - map.height / 2.0) / worldSize
+        return Coord(WebMercator.latitude(wy), WebMercator.longitude(wx))
+    }
+
+    /**
+     * Compares the Java projection of points away from the center of the map with the native one and adjusts the
+     * world size if they differ by more than [tolerance]. This calls the native map once.
+     *
+     * @return the largest distance between the two projections in pixels before the adjustment
+     */
+    fun validate(): Double {
+        updateCamera()
+        val w = map.width
+        val h = map.height
+        if (w <= 0 || h <= 0) {
+            return 0.0
+        }
+        val samples = intArrayOf(w * 3 / 4, h * 3 / 4, w / 4, h * 3 / 4, w * 3 / 4, h / 4)
+        val count = samples.size / 2
+        var coords = batch.unproject(samples, count)
+        if (coords == null) {
+            coords = DoubleArray(samples.size)
+            for (i in 0 until count) {
+                val c = map.getCoordAtPosition(samples[i * 2], samples[i * 2 + 1])
+                coords[i * 2] = c.latitude
+                coords[i * 2 + 1] = c.longitude
+            }
+        }
+        var error = 0.0
+        var expected = 0.0
+        var actual = 0.0
+        for (i in 0 until count) {
+            val px = samples[i * 2]
+            val py = samples[i * 2 + 1]
+            val projected = toScreen(coords[i * 2], coords[i * 2 + 1])
+            val ex = (projected.x - px).toDouble()
+            val ey = (projected.y - py).toDouble()
+            error = max(error, sqrt(ex * ex + ey * ey))
+            expected += abs(px - w / 2.0) + abs(py - h / 2.0)
+            actual += abs(projected.x - w / 2.0) + abs(projected.y - h / 2.0)
+        }
+        if (error > tolerance && actual > 0) {
+            // The distance from the center scales linearly with the world size.
+            val ratio = expected / actual
+            tileSize *= ratio
+            worldSize *= ratio
+        }
+        return error
+    }
+
+    private fun updateCamera() {
+        if (!stale) {
+            return
+        }
+        stale = false
+        val center = map.cameraPosition
+        centerX = WebMercator.x(center.longitude)
+        centerY = WebMercator.y(center.latitude)
+        worldSize = tileSize * MathUtil.pow(2.0, map.zoom.toDouble())
+        if (!calibrated && map.width > 0) {
+            calibrated = true
+            validate()
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps
+
+import com.codename1.maps.Coord
+import com.codename1.system.NativeLookup
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.Container
+import com.codename1.ui.EncodedImage
+import com.codename1.ui.PeerComponent
+import com.codename1.ui.geom.Point
+import java.util.*
+
+/**
+ * Adds and removes the markers of a [MapContainer] in batches. Where [NativeMapBatch] is implemented (Android,
+ * iOS and JavaScript) a batch crosses the native bridge once, elsewhere, and until the native map is created,
+ * the markers are added one by one through [MapContainer.addMarker].
+ *
+ * The cn1lib owns the marker click listener of the native map, so markers added natively handle taps differently
+ * per platform. On iOS and in JavaScript they let taps through to the tap listeners of the map, callers hit test
+ * them there. On Android they show their text in the info window and report the tap to [markerTapListener],
+ * markers without a text don't report taps. Each icon is decoded natively once and
+ * shared by its markers until [release], the native side recognizes equal image data so separate
+ * [EncodedImage] instances of the same image share one decoded icon too. The projection calls convert a whole batch of points with a single wait
+ * for the native UI thread.
+ *
+ * @param map the map the markers are added to
+ */
+class MapBatch(private val map: MapContainer) {
+    private val nativeBatch: NativeMapBatch? = createNative()
+
+    // Markers added through the cn1lib, by id.
+    private val fallback = HashMap<Long, MapContainer.MapObject>()
+
+    // Ids of the markers added natively.
+    private val nativeMarkers = HashSet<Long>()
+
+    // Native icon ids by the icon they were registered for.
+    private val icons = HashMap<EncodedImage, Int>()
+
+    /**
+     * Invoked on the EDT with the id of a marker added natively when the native map reports a tap on it.
+     */
+    var markerTapListener: ((Long) -> Unit)? = null
+
+    /**
+     * True if the batches go to the native map in one call.
+     */
+    val isNative: Boolean
+        get() = nativeBatch != null && mapPeer() != null
+
+    /**
+     * Adds markers sharing one icon.
+     *
+     * @param icon the marker icon
+     * @param lat the marker latitudes
+     * @param lon the marker longitudes
+     * @param texts the marker titles or null
+     * @param count the number of markers to add from the arrays
+     * @param anchorU the horizontal icon anchor of all the markers
+     * @param anchorV the vertical icon anchor of all the markers
+     * @return the marker ids, used to remove them
+     */
+    fun addMarkers(icon: EncodedImage, lat: DoubleArray, lon: DoubleArray, texts: Array<String?>?, count: Int,
+                   anchorU: Float = 0.5f, anchorV: Float = 1f): LongArray {
+        val ids = LongArray(count) { nextId++ }
+        if (count == 0) {
+            return ids
+        }
+        val n = nativeBatch
+        val peer = mapPeer()
+        if (n == null || peer == null) {
+            for (i in 0 until count) {
+                val options = MapContainer.MarkerOptions(Coord(lat[i], lon[i]), icon).anchor(anchorU, anchorV)
+                val text = texts?.get(i)
+                if (text != null) {
+                    options.text(text)
+                }
+                fallback[ids[i]] = map.addMarker(options)
+            }
+            return ids
+        }
+        var iconId = icons[icon]
+        if (iconId == null) {
+            iconId = n.registerIcon(icon.imageData)
+            icons[icon] = iconId
+        }
+        if (nativeMarkers.isEmpty()) {
+            live.add(this)
+        }
+        for (id in ids) {
+            nativeMarkers.add(id)
+        }
+        n.addMarkers(peer, ids, iconId, copy(lat, count), copy(lon, count),
+                FloatArray(count) { anchorU }, FloatArray(count) { anchorV }, joinTexts(texts, count))
+        return ids
+    }
+
+    /**
+     * Removes markers added by [addMarkers].
+     *
+     * @param ids the marker ids
+     * @param count the number of ids to use from the array
+     */
+    fun removeMarkers(ids: LongArray, count: Int) {
+        var nativeIds: LongArray? = null
+        var nativeCount = 0
+        for (i in 0 until count) {
+            val mapObject = fallback.remove(ids[i])
+            if (mapObject != null) {
+                map.removeMapObject(mapObject)
+            } else if (nativeMarkers.remove(ids[i])) {
+                if (nativeIds == null) {
+                    nativeIds = LongArray(count - i)
+                }
+                nativeIds[nativeCount++] = ids[i]
+            }
+        }
+        val n = nativeBatch
+        val peer = mapPeer()
+        if (nativeIds != null && n != null && peer != null) {
+            n.removeMarkers(peer, if (nativeCount == nativeIds.size) nativeIds else nativeIds.copyOf(nativeCount))
+        }
+        if (nativeIds != null && nativeMarkers.isEmpty()) {
+            live.remove(this)
+        }
+    }
+
+    /**
+     * Removes every marker added by [addMarkers].
+     */
+    fun clear() {
+        for (mapObject in fallback.values) {
+            map.removeMapObject(mapObject)
+        }
+        fallback.clear()
+        val n = nativeBatch
+        val peer = mapPeer()
+        if (n != null && peer != null && nativeMarkers.isNotEmpty()) {
+            val ids = LongArray(nativeMarkers.size)
+            var i = 0
+            for (id in nativeMarkers) {
+                ids[i++] = id
+            }
+            n.removeMarkers(peer, ids)
+        }
+        nativeMarkers.clear()
+        live.remove(this)
+    }
+
+    /**
+     * Removes every marker and releases the native icons, the batch can still be used afterwards.
+     */
+    fun release() {
+        clear()
+        val n = nativeBatch ?: return
+        for (iconId in icons.values) {
+            n.releaseIcon(iconId)
+        }
+        icons.clear()
+    }
+
+    /**
+     * Converts coordinates to positions relative to the map in one native call.
+     *
+     * @param lat the latitudes
+     * @param lon the longitudes
+     * @param count the number of coordinates to convert from the arrays
+     * @return the interleaved x/y positions or null if the native map can't convert them, callers fall back to
+     * [MapContainer.getScreenCoordinate]
+     */
+    fun project(lat: DoubleArray, lon: DoubleArray, count: Int): IntArray? {
+        val n = nativeBatch ?: return null
+        val peer = mapPeer() ?: return null
+        val xy = n.projectBatch(peer, copy(lat, count), copy(lon, count))
+        return if (xy != null && xy.size == count * 2) xy else null
+    }
+
+    /**
+     * Converts positions relative to the map to coordinates in one native call.
+     *
+     * @param xy the interleaved x/y positions
+     * @param count the number of positions to convert from the array
+     * @return the interleaved latitudes/longitudes or null if the native map can't convert them, callers fall back
+     * to [MapContainer.getCoordAtPosition]
+     */
+    fun unproject(xy: IntArray, count: Int): DoubleArray? {
+        val n = nativeBatch ?: return null
+        val peer = mapPeer() ?: return null
+        val coords = n.unprojectBatch(peer, if (xy.size == count * 2) xy else xy.copyOf(count * 2))
+        return if (coords != null && coords.size == count * 2) coords else null
+    }
+
+    /**
+     * Returns the positions of coordinates relative to the map, like [MapContainer.getScreenCoordinates] but
+     * converting them natively in one call. Falls back to [MapContainer.getScreenCoordinates] while the native map
+     * can't convert them.
+     *
+     * @param coords the coordinates
+     * @return the positions, in the order of the coordinates
+     */
+    fun getScreenCoordinates(coords: List<Coord>): List<Point> {
+        val count = coords.size
+        val lat = DoubleArray(count)
+        val lon = DoubleArray(count)
+        for (i in 0 until count) {
+            lat[i] = coords[i].latitude
+            lon[i] = coords[i].longitude
+        }
+        val xy = project(lat, lon, count)
+        if (xy == null) {
+            @Suppress("UNCHECKED_CAST")
+            return map.getScreenCoordinates(coords) as List<Point>
+        }
+        val out = ArrayList<Point>(count)
+        for (i in 0 until count) {
+            out.add(Point(xy[i * 2], xy[i * 2 + 1]))
+        }
+        return out
+    }
+
+    /**
+     * Returns the peer component holding the native map, null until the cn1lib created it.
+     */
+    fun mapPeer(): PeerComponent? {
+        return if (map.isNativeMaps) findPeer(map) else null
+    }
+
+    private fun findPeer(container: Container): PeerComponent? {
+        for (i in 0 until container.componentCount) {
+            val c: Component = container.getComponentAt(i)
+            if (c is PeerComponent) {
+                return c
+            }
+            if (c is Container) {
+                val peer = findPeer(c)
+                if (peer != null) {
+                    return peer
+                }
+            }
+        }
+        return null
+    }
+
+    private fun copy(values: DoubleArray, count: Int): DoubleArray {
+        return if (values.size == count) values else values.copyOf(count)
+    }
+
+    companion object {
+        /**
+         * Separates the marker titles passed to [NativeMapBatch.addMarkers].
+         */
+        const val TEXT_SEPARATOR = '\u001f'
+
+        // Marker ids are unique across batches so a tap reported by the native side finds its batch, the batches
+        // holding native markers are kept here. Only touched on the EDT.
+        private var nextId = 1L
+        private val live = ArrayList<MapBatch>()
+
+        /**
+         * Called by the native side, from any thread, when a marker added by [NativeMapBatch.addMarkers] is tapped.
+         *
+         * @param id the marker id
+         */
+        @JvmStatic
+        fun fireMarkerTap(id: Long) {
+            CN.callSerially {
+                var owner: MapBatch? = null
+                for (batch in live) {
+                    if (batch.nativeMarkers.contains(id)) {
+                        owner = batch
+                        break
+                    }
+                }
+                owner?.markerTapListener?.invoke(id)
+            }
+        }
+
+        private fun createNative(): NativeMapBatch? {
+            val n = NativeLookup.create(NativeMapBatch::class.java) as NativeMapBatch?
+            return if (n != null && n.isSupported) n else null
+        }
+
+        private fun joinTexts(texts: Array<String?>?, count: Int): String? {
+            if (texts == null) {
+                return null
+            }
+            val sb = StringBuilder()
+            for (i in 0 until count) {
+                if (i > 0) {
+                    sb.append(TEXT_SEPARATOR)
+                }
+                val text = texts[i]
+                if (text != null) {
+                    sb.append(text.replace(TEXT_SEPARATOR, ' '))
+                }
+            }
+            return sb.toString()
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps
+
+import com.codename1.maps.BoundingBox
+import com.codename1.maps.Coord
+import com.codename1.maps.MapListener
+import com.codename1.ui.CN
+import com.codename1.ui.Component
+import com.codename1.ui.EncodedImage
+import com.codename1.ui.Font
+import com.codename1.ui.Image
+import com.codename1.ui.events.ActionEvent
+import com.codename1.ui.events.ActionListener
+import java.util.*
+import kotlin.math.abs
+import kotlin.math.floor
+
+/**
+ * Shows a large number of markers on a [MapContainer] by clustering them. The markers are kept in a
+ * [MarkerQuadTree] and whenever the camera moves the visible ones are grouped into a grid of cells about
+ * [cellSize] pixels wide. Cells with a single marker show the marker itself, other cells show one cluster marker
+ * labeled with the count that zooms in to its cell when tapped.
+ *
+ * Only the difference to the markers shown before is applied to the map: a marker or cluster whose cell and
+ * count didn't change stays on the map, so panning only touches the markers at the edges of the viewport. The
+ * difference is sent through [MapBatch], one call for the removed markers and one per icon for the added ones.
+ *
+ * Taps are hit tested against the shown markers from a tap listener of the map, which consumes the taps that hit
+ * a marker so listeners added after the clusterer can ignore them. Taps the native map reports on a marker
+ * through [MapBatch.markerTapListener] are handled the same way.
+ *
+ * @param map the map
+ * @param icon the icon of single markers
+ * @param batch the batch calls of the map
+ */
+class MarkerClusterer(private val map: MapContainer, private val icon: EncodedImage,
+                      private val batch: MapBatch = MapBatch(map)) : MapListener {
+    /**
+     * The approximate width of a cluster cell in pixels.
+     */
+    var cellSize = CN.convertToPixels(12f)
+
+    /**
+     * The background color of the cluster markers.
+     */
+    var clusterColor = 0x1565c0
+
+    private val tree = MarkerQuadTree()
+    private val texts = ArrayList<String?>()
+    private val listeners = ArrayList<ActionListener<ActionEvent>?>()
+    private val clusters = MarkerQuadTree.Clusters()
+    private var shown = HashMap<Long, Shown>()
+    private var next = HashMap<Long, Shown>()
+    private val clusterIcons = HashMap<String, EncodedImage>()
+
+    // The pending difference, the added markers are grouped by icon.
+    private var removed = LongArray(64)
+    private var removedCount = 0
+    private val added = HashMap<EncodedImage, Added>()
+
+    // The viewport of the last refresh, places the markers when the map can't project them natively.
+    private var level = 0
+    private var viewX = 0.0
+    private var viewY = 0.0
+    private var pixelsPerUnit = 0.0
+
+    // Scratch space of the hit test, reused between taps.
+    private var hitShown = arrayOfNulls<Shown>(16)
+    private var hitLat = DoubleArray(16)
+    private var hitLon = DoubleArray(16)
+
+    private val tapListener = ActionListener<ActionEvent> { e ->
+        if (tap(e.x, e.y)) {
+            e.consume()
+        }
+    }
+
+    init {
+        map.addMapListener(this)
+        map.addTapListener(tapListener)
+        batch.markerTapListener = { id -> tapped(id) }
+    }
+
+    /**
+     * Adds a marker, call [refresh] once all the markers of a batch are added.
+     *
+     * @param location the marker location
+     * @param text the text shown when the marker is tapped
+     * @param onClick invoked when the marker is tapped
+     * @return the index of the marker
+     */
+    fun add(location: Coord, text: String?, onClick: ActionListener<ActionEvent>? = null): Int {
+        texts.add(text)
+        listeners.add(onClick)
+        return tree.add(WebMercator.x(location.longitude), WebMercator.y(location.latitude))
+    }
+
+    /**
+     * The number of markers, clustered or not.
+     */
+    val size: Int
+        get() = tree.size
+
+    /**
+     * Removes all the markers.
+     */
+    fun clear() {
+        batch.clear()
+        shown.clear()
+        tree.clear()
+        texts.clear()
+        listeners.clear()
+    }
+
+    /**
+     * Stops following the camera and removes the markers from the map.
+     */
+    fun dispose() {
+        map.removeMapListener(this)
+        map.removeTapListener(tapListener)
+        batch.markerTapListener = null
+        clear()
+        batch.release()
+    }
+
+    override fun mapPositionUpdated(source: Component?, zoom: Int, center: Coord?) {
+        refresh()
+    }
+
+    /**
+     * Clusters the markers in the current viewport and updates the map.
+     */
+    fun refresh() {
+        val width = map.width
+        val box = map.boundingBox
+        if (width <= 0 || box == null) {
+            return
+        }
+        var minX = WebMercator.x(box.southWest.longitude)
+        var maxX = WebMercator.x(box.northEast.longitude)
+        if (maxX <= minX) {
+            // The viewport crosses the antimeridian.
+            minX = 0.0
+            maxX = 1.0
+        }
+        val minY = WebMercator.y(box.northEast.latitude)
+        val maxY = WebMercator.y(box.southWest.latitude)
+
+        // Power of two cells line up with the tree nodes so whole subtrees fall into a single cell, the cells are
+        // also fixed on the map so panning doesn't move the cluster boundaries.
+        pixelsPerUnit = width / (maxX - minX)
+        viewX = minX
+        viewY = minY
+        level = 0
+        while (level < MarkerQuadTree.MAX_LEVEL && (1L shl (level + 1)) * cellSize <= pixelsPerUnit) {
+            level++
+        }
+        val margin = 1.0 / (1L shl level)
+        tree.cluster(minX - margin, minY - margin, maxX + margin, maxY + margin, level, clusters)
+
+        // Markers that show a single point are keyed by the point so they survive zooming.
+        removedCount = 0
+        for (i in 0 until clusters.size) {
+            val count = clusters.count(i)
+            val key = if (count == 1) -1L - clusters.first(i) else clusters.key(i)
+            val old = shown.remove(key)
+            if (old != null && old.count == count) {
+                next[key] = old
+            } else {
+                if (old != null) {
+                    remove(old.id)
+                }
+                add(key, i)
+            }
+        }
+        for (s in shown.values) {
+            remove(s.id)
+        }
+        shown.clear()
+        batch.removeMarkers(removed, removedCount)
+        for (a in added.values) {
+            if (a.count > 0) {
+                // Single markers point at their location with the bottom of the icon, clusters are centered.
+                val anchorV = if (a.icon === icon) 1f else 0.5f
+                val ids = batch.addMarkers(a.icon, a.lat, a.lon, a.texts, a.count, 0.5f, anchorV)
+                for (i in 0 until a.count) {
+                    next[a.keys[i]] = Shown(a.counts[i], ids[i], a.xs[i], a.ys[i], a.points[i], level)
+                    a.texts[i] = null
+                }
+                a.count = 0
+            }
+        }
+        val swap = shown
+        shown = next
+        next = swap
+    }
+
+    private fun remove(id: Long) {
+        if (removedCount == removed.size) {
+            removed = removed.copyOf(removedCount * 2)
+        }
+        removed[removedCount++] = id
+    }
+
+    private fun add(key: Long, cluster: Int) {
+        val count = clusters.count(cluster)
+        if (count == 1) {
+            val point = clusters.first(cluster)
+            added.getOrPut(icon) { Added(icon) }.add(key, count, point, tree.xAt(point), tree.yAt(point),
+                    texts[point])
+        } else {
+            val clusterIcon = clusterIcon(count)
+            added.getOrPut(clusterIcon) { Added(clusterIcon) }.add(key, count, -1, clusters.x(cluster),
+                    clusters.y(cluster), count.toString())
+        }
+    }
+
+    /**
+     * Hit tests a tap relative to the map against the shown markers, projected in one batch.
+     *
+     * @return true if the tap hit a marker or a cluster
+     */
+    private fun tap(x: Int, y: Int): Boolean {
+        val n = shown.size
+        if (n == 0) {
+            return false
+        }
+        if (hitShown.size < n) {
+            hitShown = arrayOfNulls(n * 2)
+            hitLat = DoubleArray(n * 2)
+            hitLon = DoubleArray(n * 2)
+        }
+        var i = 0
+        for (s in shown.values) {
+            hitShown[i] = s
+            hitLat[i] = WebMercator.latitude(s.y)
+            hitLon[i] = WebMercator.longitude(s.x)
+            i++
+        }
+        val xy = batch.project(hitLat, hitLon, n)
+        val half = icon.width / 2
+        var best: Shown? = null
+        var bestDistance = Int.MAX_VALUE
+        for (j in 0 until n) {
+            val s = hitShown[j]!!
+            hitShown[j] = null
+            val sx = xy?.get(j * 2) ?: ((s.x - viewX) * pixelsPerUnit).toInt()
+            var sy = xy?.get(j * 2 + 1) ?: ((s.y - viewY) * pixelsPerUnit).toInt()
+
+            // Single markers stand on their location, clusters are centered on it.
+            val halfHeight = if (s.count == 1) icon.height / 2 else half
+            if (s.count == 1) {
+                sy -= halfHeight
+            }
+            val dx = abs(x - sx)
+            val dy = abs(y - sy)
+            if (dx <= half && dy <= halfHeight && dx * dx + dy * dy < bestDistance) {
+                best = s
+                bestDistance = dx * dx + dy * dy
+            }
+        }
+        if (best == null) {
+            return false
+        }
+        open(best)
+        return true
+    }
+
+    private fun tapped(id: Long) {
+        for (s in shown.values) {
+            if (s.id == id) {
+                open(s)
+                return
+            }
+        }
+    }
+
+    /**
+     * Fires the listener of a single marker or zooms in to the cell of a cluster.
+     */
+    private fun open(s: Shown) {
+        if (s.count == 1) {
+            listeners[s.point]?.actionPerformed(ActionEvent(map))
+            return
+        }
+        val side = 1.0 / (1L shl s.level)
+        val left = floor(s.x / side) * side
+        val top = floor(s.y / side) * side
+        map.fitBounds(BoundingBox(
+                Coord(WebMercator.latitude(top + side), WebMercator.longitude(left)),
+                Coord(WebMercator.latitude(top), WebMercator.longitude(left + side))))
+    }
+
+    /**
+     * Cluster icons are shared by counts with the same label, so only a handful of images are ever encoded.
+     */
+    private fun clusterIcon(count: Int): EncodedImage {
+        val label = when {
+            count < 10 -> count.toString()
+            count < 100 -> (count / 10 * 10).toString() + "+"
+            count < 1000 -> (count / 100 * 100).toString() + "+"
+            else -> (count / 1000).toString() + "k+"
+        }
+        return clusterIcons.getOrPut(label) {
+            val size = icon.width
+            val font = Font.createSystemFont(Font.FACE_SYSTEM, Font.STYLE_BOLD, Font.SIZE_SMALL)
+            val image = Image.createImage(size, size, 0)
+            val g = image.graphics
+            g.isAntiAliased = true
+            g.color = clusterColor
+            g.fillArc(0, 0, size, size, 0, 360)
+            g.color = 0xffffff
+            g.font = font
+            g.drawString(label, (size - font.stringWidth(label)) / 2, (size - font.height) / 2)
+            EncodedImage.createFromImage(image, false)
+        }
+    }
+
+    /**
+     * A marker or cluster on the map, at the unit square position [x]/[y]. [point] is the index of the marker
+     * shown by a single marker, [level] the grid level of a cluster cell.
+     */
+    private class Shown(val count: Int, val id: Long, val x: Double, val y: Double, val point: Int, val level: Int)
+
+    /**
+     * The markers of one icon added by a refresh, the arrays are reused between refreshes.
+     */
+    private class Added(val icon: EncodedImage) {
+        var count = 0
+        var keys = LongArray(16)
+        var counts = IntArray(16)
+        var points = IntArray(16)
+        var xs = DoubleArray(16)
+        var ys = DoubleArray(16)
+        var lat = DoubleArray(16)
+        var lon = DoubleArray(16)
+        var texts = arrayOfNulls<String>(16)
+
+        fun add(key: Long, markers: Int, point: Int, x: Double, y: Double, text: String?) {
+            if (count == keys.size) {
+                val size = count * 2
+                keys = keys.copyOf(size)
+                counts = counts.copyOf(size)
+                points = points.copyOf(size)
+                xs = xs.copyOf(size)
+                ys = ys.copyOf(size)
+                lat = lat.copyOf(size)
+                lon = lon.copyOf(size)
+                texts = texts.copyOf(size)
+            }
+            keys[count] = key
+            counts[count] = markers
+            points[count] = point
+            xs[count] = x
+            ys[count] = y
+            lat[count] = WebMercator.latitude(y)
+            lon[count] = WebMercator.longitude(x)
+            texts[count] = text
+            count++
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps
+
+import java.util.*
+import kotlin.math.min
+
+/**
+ * A point quadtree over the [WebMercator] unit square. Every node keeps the number of points below it and the sum
+ * of their coordinates, so a subtree that falls within a single cluster cell is reported as one cluster without
+ * visiting its points. Clustering therefore costs about the number of visible cells rather than the number of
+ * points.
+ */
+class MarkerQuadTree {
+    private var xs = DoubleArray(64)
+    private var ys = DoubleArray(64)
+    private var root = Node(0.0, 0.0, 1.0, 0)
+
+    /**
+     * The number of points in the tree.
+     */
+    var size = 0
+        private set
+
+    /**
+     * Adds a point.
+     *
+     * @param x the projected x coordinate between 0 and 1
+     * @param y the projected y coordinate between 0 and 1
+     * @return the index of the point
+     */
+    fun add(x: Double, y: Double): Int {
+        if (size == xs.size) {
+            xs = xs.copyOf(size * 2)
+            ys = ys.copyOf(size * 2)
+        }
+        val index = size++
+        xs[index] = x
+        ys[index] = y
+        insert(root, index)
+        return index
+    }
+
+    fun xAt(index: Int): Double = xs[index]
+
+    fun yAt(index: Int): Double = ys[index]
+
+    /**
+     * Removes all the points.
+     */
+    fun clear() {
+        size = 0
+        root = Node(0.0, 0.0, 1.0, 0)
+    }
+
+    /**
+     * Groups the points within a rectangle into a grid of square cells with a side of 2^-level, cell boundaries
+     * line up with the tree nodes.
+     *
+     * @param minX the left edge of the rectangle
+     * @param minY the top edge of the rectangle
+     * @param maxX the right edge of the rectangle
+     * @param maxY the bottom edge of the rectangle
+     * @param level the grid level between 0 and [MAX_LEVEL]
+     * @param out receives one entry per non empty cell
+     */
+    fun cluster(minX: Double, minY: Double, maxX: Double, maxY: Double, level: Int, out: Clusters) {
+        out.clear()
+        visit(root, minX, minY, maxX, maxY, level, 1.0 / (1L shl level), out)
+    }
+
+    private fun visit(node: Node, minX: Double, minY: Double, maxX: Double, maxY: Double, level: Int,
+                      cellSide: Double, out: Clusters) {
+        if (node.count == 0 || node.x > maxX || node.x + node.side < minX || node.y > maxY || node.y + node.side < minY) {
+            return
+        }
+        if (node.side <= cellSide) {
+            out.add(cellKey(level, node.x, node.y), node.count, node.sumX, node.sumY, node.first)
+            return
+        }
+        val children = node.children
+        if (children != null) {
+            for (child in children) {
+                visit(child, minX, minY, maxX, maxY, level, cellSide, out)
+            }
+            return
+        }
+        val points = node.points
+        for (i in 0 until node.pointCount) {
+            val p = points[i]
+            val x = xs[p]
+            val y = ys[p]
+            if (x in minX..maxX && y in minY..maxY) {
+                out.add(cellKey(level, x, y), 1, x, y, p)
+            }
+        }
+    }
+
+    private fun insert(node: Node, index: Int) {
+        val x = xs[index]
+        val y = ys[index]
+        node.count++
+        node.sumX += x
+        node.sumY += y
+        if (node.first < 0) {
+            node.first = index
+        }
+        val children = node.children
+        if (children != null) {
+            insert(children[node.quadrant(x, y)], index)
+            return
+        }
+        if (node.pointCount < LEAF_CAPACITY || node.depth >= MAX_LEVEL) {
+            if (node.pointCount == node.points.size) {
+                node.points = node.points.copyOf(node.pointCount * 2)
+            }
+            node.points[node.pointCount++] = index
+            return
+        }
+
+        // Split the leaf, the counts of the new children are built by inserting the points again.
+        val half = node.side / 2
+        val depth = node.depth + 1
+        val split = arrayOf(Node(node.x, node.y, half, depth), Node(node.x + half, node.y, half, depth),
+                Node(node.x, node.y + half, half, depth), Node(node.x + half, node.y + half, half, depth))
+        node.children = split
+        for (i in 0 until node.pointCount) {
+            val p = node.points[i]
+            insert(split[node.quadrant(xs[p], ys[p])], p)
+        }
+        node.points = EMPTY
+        node.pointCount = 0
+        insert(split[node.quadrant(x, y)], index)
+    }
+
+    private class Node(val x: Double, val y: Double, val side: Double, val depth: Int) {
+        var count = 0
+        var sumX = 0.0
+        var sumY = 0.0
+        var first = -1
+        var points = IntArray(LEAF_CAPACITY)
+        var pointCount = 0
+        var children: Array<Node>? = null
+
+        fun quadrant(px: Double, py: Double): Int {
+            val half = side / 2
+            return (if (px >= x + half) 1 else 0) + (if (py >= y + half) 2 else 0)
+        }
+    }
+
+    /**
+     * The clusters found by [cluster], each cluster is identified by its grid cell.
+     */
+    class Clusters {
+        private var keys = LongArray(16)
+        private var counts = IntArray(16)
+        private var sumX = DoubleArray(16)
+        private var sumY = DoubleArray(16)
+        private var firsts = IntArray(16)
+        private val slots = HashMap<Long, Int>()
+
+        /**
+         * The number of clusters.
+         */
+        var size = 0
+            private set
+
+        /**
+         * A key identifying the cell of the cluster and the grid level.
+         */
+        fun key(index: Int): Long = keys[index]
+
+        /**
+         * The number of points in the cluster.
+         */
+        fun count(index: Int): Int = counts[index]
+
+        /**
+         * The x coordinate of the center of the cluster points.
+         */
+        fun x(index: Int): Double = sumX[index] / counts[index]
+
+        /**
+         * The y coordinate of the center of the cluster points.
+         */
+        fun y(index: Int): Double = sumY[index] / counts[index]
+
+        /**
+         * The index of one of the points of the cluster, the only one if its count is 1.
+         */
+        fun first(index: Int): Int = firsts[index]
+
+        internal fun add(key: Long, count: Int, x: Double, y: Double, first: Int) {
+            val slot = slots[key]
+            if (slot != null) {
+                counts[slot] += count
+                sumX[slot] += x
+                sumY[slot] += y
+                return
+            }
+            if (size == keys.size) {
+                val capacity = size * 2
+                keys = keys.copyOf(capacity)
+                counts = counts.copyOf(capacity)
+                sumX = sumX.copyOf(capacity)
+                sumY = sumY.copyOf(capacity)
+                firsts = firsts.copyOf(capacity)
+            }
+            slots[key] = size
+            keys[size] = key
+            counts[size] = count
+            sumX[size] = x
+            sumY[size] = y
+            firsts[size++] = first
+        }
+
+        internal fun clear() {
+            size = 0
+            slots.clear()
+        }
+    }
+
+    companion object {
+        /**
+         * The deepest grid level, cells at this level are about 15cm wide.
+         */
+        const val MAX_LEVEL = 28
+
+        private const val LEAF_CAPACITY = 16
+        private val EMPTY = IntArray(0)
+
+        private fun cellKey(level: Int, x: Double, y: Double): Long {
+            val cells = 1L shl level
+            val cx = min((x * cells).toLong(), cells - 1)
+            val cy = min((y * cells).toLong(), cells - 1)
+            return (level.toLong() shl 58) or (cx shl 29) or cy
+        }
+    }
+}
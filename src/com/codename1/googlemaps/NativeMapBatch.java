@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps;
+
+import com.codename1.system.NativeInterface;
+import com.codename1.ui.PeerComponent;
+
+/**
+ * Batch calls on the native map of a {@link MapContainer}. The calls of the GoogleMaps cn1lib cross the native
+ * bridge once per marker, these take parallel primitive arrays and apply a whole batch in a single pass on the
+ * native UI thread. Use it through {@link MapBatch}, which finds the map peer and falls back to the cn1lib on
+ * platforms without an implementation.
+ *
+ * Marker ids are allocated by the caller so adding markers doesn't wait for the native side. Icons are decoded
+ * once by {@link #registerIcon} and shared by every marker using them, icons are identified by their image
+ * bytes so equal images registered separately are decoded only once.
+ */
+public interface NativeMapBatch extends NativeInterface {
+    /**
+     * Decodes an icon for use by {@link #addMarkers}. Registering bytes equal to an icon that is still alive
+     * returns its id without decoding them again, every registration must be released. The icon stays alive
+     * until every registration was released and every marker using it was removed.
+     *
+     * @param icon the encoded icon image
+     * @return the icon id, never 0
+     */
+    public int registerIcon(byte[] icon);
+
+    /**
+     * Releases an icon returned by {@link #registerIcon}.
+     *
+     * @param icon the icon id
+     */
+    public void releaseIcon(int icon);
+
+    /**
+     * Adds markers sharing one icon. The markers don't fire the marker listeners of the cn1lib, they let taps
+     * through to the map where the platform allows it and otherwise report them to {@link MapBatch#fireMarkerTap}.
+     *
+     * @param map the native map peer created by the cn1lib
+     * @param ids the ids the markers are removed with
+     * @param icon the icon id returned by {@link #registerIcon}, 0 for the default marker
+     * @param lat the marker latitudes
+     * @param lon the marker longitudes
+     * @param anchorU the horizontal icon anchors, between 0 and 1
+     * @param anchorV the vertical icon anchors, between 0 and 1
+     * @param texts the marker titles separated by {@link MapBatch#TEXT_SEPARATOR}, null for no titles
+     */
+    public void addMarkers(PeerComponent map, long[] ids, int icon, double[] lat, double[] lon,
+            float[] anchorU, float[] anchorV, String texts);
+
+    /**
+     * Removes markers added by {@link #addMarkers}, unknown ids are ignored.
+     *
+     * @param map the native map peer created by the cn1lib
+     * @param ids the marker ids
+     */
+    public void removeMarkers(PeerComponent map, long[] ids);
+
+    /**
+     * Converts coordinates to positions relative to the map peer in a single pass.
+     *
+     * @param map the native map peer created by the cn1lib
+     * @param lat the latitudes
+     * @param lon the longitudes
+     * @return the interleaved x/y positions, an empty array while the native map isn't ready
+     */
+    public int[] projectBatch(PeerComponent map, double[] lat, double[] lon);
+
+    /**
+     * Converts positions relative to the map peer to coordinates in a single pass.
+     *
+     * @param map the native map peer created by the cn1lib
+     * @param xy the interleaved x/y positions
+     * @return the interleaved latitudes/longitudes, an empty array while the native map isn't ready
+     */
+    public double[] unprojectBatch(PeerComponent map, int[] xy);
+}
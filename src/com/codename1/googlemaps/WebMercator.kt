@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.googlemaps
+
+import com.codename1.util.MathUtil
+import kotlin.math.PI
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sin
+
+/**
+ * The Web Mercator projection used by Google Maps. Coordinates are projected to the unit square: x grows from 0
+ * at longitude -180 to 1 at longitude 180 and y grows from 0 at the north edge of the map to 1 at its south edge.
+ * A map at zoom level z is this square scaled to 256 * 2^z density independent pixels.
+ */
+object WebMercator {
+    /**
+     * The latitude of the north edge of the map, latitudes beyond it are clamped.
+     */
+    const val MAX_LATITUDE = 85.05112878
+
+    /**
+     * Projects a longitude.
+     *
+     * @param lon the longitude in degrees
+     * @return the x coordinate between 0 and 1
+     */
+    fun x(lon: Double): Double {
+        return (lon + 180) / 360
+    }
+
+    /**
+     * Projects a latitude.
+     *
+     * @param lat the latitude in degrees
+     * @return the y coordinate between 0 and 1
+     */
+    fun y(lat: Double): Double {
+        val s = sin(max(-MAX_LATITUDE, min(MAX_LATITUDE, lat)) * PI / 180)
+        return 0.5 - MathUtil.log((1 + s) / (1 - s)) / (4 * PI)
+    }
+
+    /**
+     * The longitude of a projected x coordinate.
+     *
+     * @param x the x coordinate
+     * @return the longitude in degrees
+     */
+    fun longitude(x: Double): Double {
+        return x * 360 - 180
+    }
+
+    /**
+     * The latitude of a projected y coordinate.
+     *
+     * @param y the y coordinate
+     * @return the latitude in degrees
+     */
+    fun latitude(y: Double): Double {
+        val n = PI * (1 - 2 * y)
+        val sinh = (MathUtil.exp(n) - MathUtil.exp(-n)) / 2
+        return MathUtil.atan(sinh) * 180 / PI
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2012, Codename One and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Codename One designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Codename One through http://www.codenameone.com/ if you
+ * need additional information or have any questions.
+ */
+package com.codename1.demos.kitchen
+
+import com.codename1.testing.AbstractTest
+import com.codename1.ui.Graphics
+import com.codename1.ui.Image
+
+/**
+ * Paints the clock into a mutable image for many consecutive frames and checks that the heap doesn't grow while
+ * doing so, the renderer is expected to reuse its paths, calendar and dial image from frame to frame.
+ *
+ * The heap is sampled around several rounds of frames and the median growth per frame is compared to a small
+ * tolerance, so a collection during a round or an unrelated allocation by another thread doesn't fail the test.
+ */
+class ClockRendererTest : AbstractTest() {
+    override fun runTest(): Boolean {
+        val renderer = ClockRenderer()
+        val size = RADIUS * 2 + 2
+        val g = Image.createImage(size, size, 0).graphics
+
+        // Warm up so the dial image is rendered and the reused paths reach their final capacity before measuring.
+        for (i in 0 until 60) {
+            paint(renderer, g)
+        }
+
+        val runtime = Runtime.getRuntime()
+        val perFrame = DoubleArray(ROUNDS)
+        for (round in 0 until ROUNDS) {
+            System.gc()
+            val before = runtime.totalMemory() - runtime.freeMemory()
+            for (i in 0 until FRAMES) {
+                paint(renderer, g)
+            }
+            val allocated = runtime.totalMemory() - runtime.freeMemory() - before
+            perFrame[round] = if (allocated > 0) allocated.toDouble() / FRAMES else 0.0
+        }
+        perFrame.sort()
+        val median = perFrame[ROUNDS / 2]
+        if (median > TOLERANCE) {
+            fail("Painting a frame allocated $median bytes on average")
+        }
+        return true
+    }
+
+    private fun paint(renderer: ClockRenderer, g: Graphics) {
+        renderer.draw(g, RADIUS + 1, RADIUS + 1, RADIUS, 50, 30, 10, false, 0)
+    }
+
+    companion object {
+        private const val RADIUS = 200
+        private const val FRAMES = 20000
+        private const val ROUNDS = 7
+
+        // Bytes per frame, well below a single object so any per frame allocation fails.
+        private const val TOLERANCE = 1.0
+    }
+}